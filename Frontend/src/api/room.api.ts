@@ -1,6 +1,5 @@
 import { apiClient } from './axios.config';
-import type { ChatRoom, ChatRoomResponse, CreateRoomRequest } from '../types/room.types';
-import type { User } from '../types/auth.types';
+import type { ChatRoom, ChatRoomResponse, CreateRoomRequest, MemberPage } from '../types/room.types';
 
 export const roomApi = {
     // GET /api/rooms/my-rooms
@@ -45,8 +44,9 @@ export const roomApi = {
     return response.data;
   }
   ,
-  getMembers: async (roomId: string): Promise<User[]> => {
-    const response = await apiClient.get(`/rooms/${roomId}/members`);
+  // GET /api/rooms/{roomId}/members/page?after=&limit= (one keyset page)
+  getMembers: async (roomId: string, after?: number, limit = 50): Promise<MemberPage> => {
+    const response = await apiClient.get(`/rooms/${roomId}/members/page`, { params: { after, limit } });
     return response.data;
   }
 };
\ No newline at end of file
@@ -1,3 +1,5 @@
+import type { UserResponse } from './user.types';
+
 export enum ChatRoomType {
   CHANNEL = 'CHANNEL',
   GROUP = 'GROUP',
@@ -16,15 +18,31 @@ export interface ChatRoom {
   } | number | string;
 }
 
-export interface RoomMember {
-  id: number;
+// One row of GET /api/rooms/{roomId}/members/page
+export interface MemberSummary {
   userId: number;
-  role: string; // Matches your MemberType Enum
+  username: string;
+  avatarUrl: string | null;
+  role: string;
+  joinedAt: string;
+}
+
+export interface MemberPage {
+  members: MemberSummary[];   // Ordered by user id
+  nextCursor: number | null;  // Pass as `after` for the next page
+  hasMore: boolean;
 }
 
+// Room details; members are not included, page through MemberPage instead
 export interface ChatRoomResponse {
-  room: ChatRoom;
-  members: RoomMember[];
+  id: number;
+  name: string;
+  description: string;
+  type: ChatRoomType;
+  avatarUrl: string | null;
+  createdBy: UserResponse;
+  memberCount: number;
+  createdAt: string;
 }
 
 export interface CreateRoomRequest {
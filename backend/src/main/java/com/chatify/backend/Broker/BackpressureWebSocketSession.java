@@ -0,0 +1,238 @@
+package com.chatify.backend.Broker;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Outbound queue in front of one WebSocket session.
+ * sendMessage() never blocks: frames are queued and drained by one virtual
+ * thread per session at a time, so a peer stuck in a write only ever holds
+ * up its own queue. When the queue grows past its limits the configured
+ * SlowConsumerPolicy decides which MESSAGE frames give; control frames
+ * (CONNECTED, RECEIPT, ERROR) are never dropped. A write blocked for longer
+ * than the send-time limit closes the session under every policy.
+ */
+@Slf4j
+public class BackpressureWebSocketSession extends WebSocketSessionDecorator {
+
+    private static final CloseStatus RESUMABLE_CLOSE =
+            CloseStatus.SERVICE_OVERLOAD.withReason("Slow consumer, reconnect and resume");
+
+    private final OutboundBackpressure settings;
+    private final ThreadFactory writers;
+
+    private final ArrayDeque<WebSocketMessage<?>> queue = new ArrayDeque<>();
+    private long queuedBytes;
+    private boolean closing;
+
+    private final AtomicBoolean writing = new AtomicBoolean();
+    private volatile long writeStartedAt;     // 0 when no write is in progress
+    private volatile long droppedFrames;
+
+    public BackpressureWebSocketSession(WebSocketSession delegate,
+                                        OutboundBackpressure settings,
+                                        ThreadFactory writers) {
+        super(delegate);
+        this.settings = settings;
+        this.writers = writers;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) {
+        boolean disconnect = false;
+        synchronized (queue) {
+            if (closing) return;
+            queue.addLast(message);
+            queuedBytes += message.getPayloadLength();
+
+            if (writeStuck()) {
+                disconnect = closeQueue();
+            } else if (overLimits()) {
+                disconnect = applyPolicy();
+            }
+        }
+        if (disconnect) {
+            disconnect();
+        } else {
+            scheduleWrite();
+        }
+    }
+
+    public int getQueuedFrames() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    public long getQueuedBytes() {
+        synchronized (queue) {
+            return queuedBytes;
+        }
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    // How long the current write has been blocked, 0 if none is in progress
+    public long getWriteBlockedMillis() {
+        long started = writeStartedAt;
+        return started == 0 ? 0 : (System.nanoTime() - started) / 1_000_000;
+    }
+
+    private boolean overLimits() {
+        return queuedBytes > settings.getSendBufferSizeLimit()
+                || queue.size() > settings.getMaxQueuedFrames();
+    }
+
+    private boolean writeStuck() {
+        return getWriteBlockedMillis() > settings.getSendTimeLimit();
+    }
+
+    // Called by the watchdog: a peer that stopped reading is closed even if
+    // nothing more is sent to it. The close itself may block, so it runs off
+    // the scheduler thread
+    void closeIfStuck() {
+        boolean disconnect;
+        synchronized (queue) {
+            disconnect = !closing && writeStuck() && closeQueue();
+        }
+        if (disconnect) writers.newThread(this::disconnect).start();
+    }
+
+    // Called with the queue lock held; returns true if the session must be closed
+    private boolean applyPolicy() {
+        switch (settings.getPolicy()) {
+            case DISCONNECT -> {
+                return closeQueue();
+            }
+            case COALESCE -> {
+                coalesce();
+                dropOldest();
+            }
+            case DROP_OLDEST -> dropOldest();
+        }
+        // Only control frames left and still over the limits
+        return overLimits() && closeQueue();
+    }
+
+    private boolean closeQueue() {
+        closing = true;
+        queue.clear();
+        queuedBytes = 0;
+        return true;
+    }
+
+    // Walk newest to oldest and keep only the newest frame per destination
+    private void coalesce() {
+        Set<String> seen = new HashSet<>();
+        Iterator<WebSocketMessage<?>> it = queue.descendingIterator();
+        while (it.hasNext()) {
+            WebSocketMessage<?> frame = it.next();
+            String destination = isMessageFrame(frame) ? destinationOf(frame) : null;
+            if (destination != null && !seen.add(destination)) {
+                it.remove();
+                dropped(frame);
+                settings.recordCoalesced();
+            }
+        }
+    }
+
+    private void dropOldest() {
+        // Always keep the newest frame
+        Iterator<WebSocketMessage<?>> it = queue.iterator();
+        while (overLimits() && it.hasNext()) {
+            WebSocketMessage<?> frame = it.next();
+            if (!it.hasNext()) break;
+            if (!isMessageFrame(frame)) continue;
+            it.remove();
+            dropped(frame);
+            settings.recordDropped();
+        }
+    }
+
+    private void dropped(WebSocketMessage<?> frame) {
+        queuedBytes -= frame.getPayloadLength();
+        droppedFrames++;
+    }
+
+    private void scheduleWrite() {
+        if (!writing.compareAndSet(false, true)) return;
+        writers.newThread(this::writeQueued).start();
+    }
+
+    private void writeQueued() {
+        try {
+            while (true) {
+                WebSocketMessage<?> frame;
+                synchronized (queue) {
+                    frame = queue.pollFirst();
+                    if (frame == null) return;
+                    queuedBytes -= frame.getPayloadLength();
+                }
+                writeStartedAt = System.nanoTime();
+                try {
+                    getDelegate().sendMessage(frame);
+                } finally {
+                    writeStartedAt = 0;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("Write to session {} failed: {}", getId(), e.getMessage());
+            synchronized (queue) {
+                closing = true;
+                queue.clear();
+                queuedBytes = 0;
+            }
+        } finally {
+            writing.set(false);
+            // A frame may have been queued after our last poll
+            boolean more;
+            synchronized (queue) {
+                more = !queue.isEmpty() && !closing;
+            }
+            if (more) scheduleWrite();
+        }
+    }
+
+    private void disconnect() {
+        settings.recordDisconnected();
+        log.info("Closing slow WebSocket session {}", getId());
+        try {
+            getDelegate().close(RESUMABLE_CLOSE);
+        } catch (IOException e) {
+            log.debug("Close of session {} failed: {}", getId(), e.getMessage());
+        }
+    }
+
+    // Heartbeats and MESSAGE frames can be lost; CONNECTED, RECEIPT and ERROR cannot
+    private static boolean isMessageFrame(WebSocketMessage<?> frame) {
+        if (!(frame instanceof TextMessage text)) return false;
+        String payload = text.getPayload();
+        return payload.isBlank() || payload.startsWith("MESSAGE\n");
+    }
+
+    // STOMP frames carry "destination:<dest>" in their header block
+    private static String destinationOf(WebSocketMessage<?> frame) {
+        if (!(frame instanceof TextMessage text)) return null;
+        String payload = text.getPayload();
+        int headersEnd = payload.indexOf("\n\n");
+        int start = payload.indexOf("\ndestination:");
+        if (start < 0 || (headersEnd >= 0 && start > headersEnd)) return null;
+        start += "\ndestination:".length();
+        int end = payload.indexOf('\n', start);
+        return end < 0 ? payload.substring(start) : payload.substring(start, end);
+    }
+}
@@ -0,0 +1,104 @@
+package com.chatify.backend.Broker;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+
+/*
+ * Limits and bookkeeping for per-session outbound queues.
+ * decorate() is registered as a WebSocket handler decorator; it wraps each
+ * new session in a BackpressureWebSocketSession before the STOMP handler
+ * sees it. Each session drains on its own virtual thread, and a watchdog
+ * closes sessions whose current write has outlived the send-time limit.
+ */
+@Component
+public class OutboundBackpressure {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${chatify.ws.send-time-limit-ms:10000}")
+    @Getter
+    private int sendTimeLimit;
+
+    @Value("${chatify.ws.send-buffer-size-bytes:524288}")
+    @Getter
+    private int sendBufferSizeLimit;
+
+    @Value("${chatify.ws.max-queued-frames:1000}")
+    @Getter
+    private int maxQueuedFrames;
+
+    @Value("${chatify.ws.slow-consumer-policy:DROP_OLDEST}")
+    @Getter
+    private SlowConsumerPolicy policy;
+
+    private final ConcurrentHashMap<String, BackpressureWebSocketSession> sessions = new ConcurrentHashMap<>();
+    private final ThreadFactory writers = Thread.ofVirtual().name("ws-writer-", 0).factory();
+    private Counter dropped;
+    private Counter coalesced;
+    private Counter disconnected;
+
+    @PostConstruct
+    public void init() {
+        dropped = meterRegistry.counter("chatify.ws.outbound.dropped");
+        coalesced = meterRegistry.counter("chatify.ws.outbound.coalesced");
+        disconnected = meterRegistry.counter("chatify.ws.outbound.disconnected");
+        meterRegistry.gauge("chatify.ws.outbound.queued", this, backpressure -> backpressure.sessions.values()
+                .stream().mapToInt(BackpressureWebSocketSession::getQueuedFrames).sum());
+        meterRegistry.gauge("chatify.ws.outbound.max-queued", this, backpressure -> backpressure.sessions.values()
+                .stream().mapToInt(BackpressureWebSocketSession::getQueuedFrames).max().orElse(0));
+    }
+
+    @Scheduled(fixedDelayString = "${chatify.ws.stuck-check-ms:1000}")
+    public void closeStuckSessions() {
+        sessions.values().forEach(BackpressureWebSocketSession::closeIfStuck);
+    }
+
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                BackpressureWebSocketSession wrapped =
+                        new BackpressureWebSocketSession(session, OutboundBackpressure.this, writers);
+                sessions.put(session.getId(), wrapped);
+                super.afterConnectionEstablished(wrapped);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    public Collection<BackpressureWebSocketSession> sessions() {
+        return sessions.values();
+    }
+
+    void recordDropped() {
+        dropped.increment();
+    }
+
+    void recordCoalesced() {
+        coalesced.increment();
+    }
+
+    void recordDisconnected() {
+        disconnected.increment();
+    }
+}
@@ -0,0 +1,41 @@
+package com.chatify.backend.Broker;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// /actuator/wsbackpressure — the sessions with the deepest outbound queues
+@Component
+@Endpoint(id = "wsbackpressure")
+public class OutboundBackpressureEndpoint {
+
+    private static final int TOP_SESSIONS = 50;
+
+    @Autowired
+    private OutboundBackpressure outboundBackpressure;
+
+    @ReadOperation
+    public List<Map<String, Object>> laggingSessions() {
+        return outboundBackpressure.sessions().stream()
+                .filter(session -> session.getQueuedFrames() > 0 || session.getWriteBlockedMillis() > 0)
+                .sorted(Comparator.comparingInt(BackpressureWebSocketSession::getQueuedFrames).reversed())
+                .limit(TOP_SESSIONS)
+                .map(session -> {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    row.put("sessionId", session.getId());
+                    row.put("user", session.getPrincipal() == null ? null : session.getPrincipal().getName());
+                    row.put("queuedFrames", session.getQueuedFrames());
+                    row.put("queuedBytes", session.getQueuedBytes());
+                    row.put("droppedFrames", session.getDroppedFrames());
+                    row.put("writeBlockedMs", session.getWriteBlockedMillis());
+                    return row;
+                })
+                .toList();
+    }
+}
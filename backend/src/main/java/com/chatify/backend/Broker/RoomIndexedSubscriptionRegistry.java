@@ -0,0 +1,222 @@
+package com.chatify.backend.Broker;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.broker.AbstractSubscriptionRegistry;
+import org.springframework.messaging.simp.broker.DefaultSubscriptionRegistry;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Subscription registry for the simple broker that looks destinations up
+ * instead of matching them.
+ *
+ * Every room sub-topic (/topic/room/{id}, /topic/room/{id}/edit, ...) and
+ * every user topic is an exact key in one concurrent map, so a broadcast
+ * is a single map lookup, and a (un)subscribe only touches its own
+ * destination — no pattern matching and no cache-wide invalidation.
+ * Pattern subscriptions (containing '*' or '{') and subscriptions with a
+ * selector header are rare and are handed to Spring's
+ * DefaultSubscriptionRegistry, which matches patterns and evaluates
+ * selectors exactly as the stock broker does. It is only consulted while at
+ * least one such subscription exists. As in Spring, selectors are only
+ * honoured once a selector header name is configured on the broker.
+ *
+ * As with DefaultSubscriptionRegistry, the map a lookup returns is the
+ * cached one itself and must only be read. RoomIndexedSubscriptionRegistryBenchmark
+ * (`gradle benchmark`) compares both registries.
+ */
+public class RoomIndexedSubscriptionRegistry extends AbstractSubscriptionRegistry {
+
+    private static final MultiValueMap<String, String> EMPTY = new LinkedMultiValueMap<>(0);
+
+    // Destinations without subscribers whose empty answer is cached, like
+    // DefaultSubscriptionRegistry's cache limit; beyond it they are looked up
+    private static final int EMPTY_CACHE_LIMIT = 1024;
+
+    // exact destination -> subscribers; every room sub-topic is its own key
+    private final ConcurrentHashMap<String, Subscribers> destinations = new ConcurrentHashMap<>();
+
+    // exact destination -> what a lookup returns; dropped on every change to
+    // the destination and rebuilt on the next lookup. Only filled while
+    // holding the destination's entry in `destinations`
+    private final ConcurrentHashMap<String, MultiValueMap<String, String>> snapshots = new ConcurrentHashMap<>();
+    private final AtomicInteger emptySnapshots = new AtomicInteger();
+
+    // sessionId -> subscriptionId -> where it was registered, to undo subscriptions
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Registration>> sessions = new ConcurrentHashMap<>();
+
+    private final DefaultSubscriptionRegistry delegate = new DefaultSubscriptionRegistry();
+    private int delegatedCount;     // Guarded by delegate
+
+    // delegatedCount > 0. A plain field like Spring's selectorHeaderInUse, read
+    // on every lookup; countDelegated publishes a change through `snapshots`
+    private boolean delegating;
+
+    // null = selectors disabled, the broker's default
+    private volatile String selectorHeaderName;
+
+    // delegated: held by the DefaultSubscriptionRegistry rather than the exact index
+    private record Registration(String destination, boolean delegated) {}
+
+    // Mirrors SimpleBrokerMessageHandler#setSelectorHeaderName, which only
+    // reaches a DefaultSubscriptionRegistry by itself
+    public void setSelectorHeaderName(String selectorHeaderName) {
+        this.selectorHeaderName = StringUtils.hasText(selectorHeaderName) ? selectorHeaderName : null;
+        delegate.setSelectorHeaderName(this.selectorHeaderName);
+    }
+
+    @Override
+    protected void addSubscriptionInternal(String sessionId, String subscriptionId,
+                                           String destination, Message<?> message) {
+        boolean delegated = isPattern(destination) || hasSelector(message);
+        sessions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>())
+                .put(subscriptionId, new Registration(destination, delegated));
+
+        if (delegated) {
+            delegate.registerSubscription(message);
+            countDelegated(1);
+            return;
+        }
+
+        destinations.compute(destination, (key, subscribers) -> {
+            if (subscribers == null) subscribers = new Subscribers();
+            subscribers.add(sessionId, subscriptionId);
+            invalidate(key);
+            return subscribers;
+        });
+    }
+
+    @Override
+    protected void removeSubscriptionInternal(String sessionId, String subscriptionId, Message<?> message) {
+        Map<String, Registration> bySubscription = sessions.get(sessionId);
+        if (bySubscription == null) return;
+
+        Registration registration = bySubscription.remove(subscriptionId);
+        if (registration == null) return;
+
+        if (registration.delegated()) {
+            delegate.unregisterSubscription(message);
+            countDelegated(-1);
+        } else {
+            remove(sessionId, subscriptionId, registration.destination());
+        }
+    }
+
+    @Override
+    public void unregisterAllSubscriptions(String sessionId) {
+        Map<String, Registration> bySubscription = sessions.remove(sessionId);
+        if (bySubscription == null) return;
+
+        bySubscription.forEach((subscriptionId, registration) -> {
+            if (registration.delegated()) {
+                countDelegated(-1);
+            } else {
+                remove(sessionId, subscriptionId, registration.destination());
+            }
+        });
+        delegate.unregisterAllSubscriptions(sessionId);
+    }
+
+    // Kept small so it inlines into the broker's lookup: the rebuild and the
+    // merge with delegated subscriptions are out of line
+    @Override
+    protected MultiValueMap<String, String> findSubscriptionsInternal(String destination, Message<?> message) {
+        MultiValueMap<String, String> result = snapshots.get(destination);
+        if (result == null) result = rebuild(destination);
+        return delegating ? withDelegated(result, message) : result;
+    }
+
+    private MultiValueMap<String, String> withDelegated(MultiValueMap<String, String> exact, Message<?> message) {
+        MultiValueMap<String, String> merged = new LinkedMultiValueMap<>(exact);
+        delegate.findSubscriptions(message).forEach(merged::addAll);
+        return merged;
+    }
+
+    // Built under the destination's entry lock, so it can never overwrite the
+    // invalidation of a change made after it read the subscribers
+    private MultiValueMap<String, String> rebuild(String destination) {
+        boolean cacheEmpty = emptySnapshots.get() < EMPTY_CACHE_LIMIT;
+        if (!cacheEmpty && !destinations.containsKey(destination)) return EMPTY;
+
+        List<MultiValueMap<String, String>> built = new ArrayList<>(1);
+        destinations.compute(destination, (key, subscribers) -> {
+            if (subscribers != null) {
+                built.add(snapshots.computeIfAbsent(key, k -> subscribers.build()));
+            } else if (cacheEmpty && snapshots.putIfAbsent(key, EMPTY) == null) {
+                emptySnapshots.incrementAndGet();
+            }
+            return subscribers;
+        });
+        return built.isEmpty() ? EMPTY : built.get(0);
+    }
+
+    private void invalidate(String destination) {
+        if (snapshots.remove(destination) == EMPTY) emptySnapshots.decrementAndGet();
+    }
+
+    private void remove(String sessionId, String subscriptionId, String destination) {
+        destinations.computeIfPresent(destination, (key, subscribers) -> {
+            invalidate(key);
+            return subscribers.remove(sessionId, subscriptionId) ? null : subscribers;
+        });
+    }
+
+    private void countDelegated(int delta) {
+        synchronized (delegate) {
+            delegatedCount += delta;
+            if (delegating != delegatedCount > 0) {
+                delegating = delegatedCount > 0;
+                // A lookup that finds a snapshot built after this also sees
+                // the new flag; only the first and last delegated one get here
+                snapshots.keySet().forEach(this::invalidate);
+            }
+        }
+    }
+
+    private boolean hasSelector(Message<?> message) {
+        String header = selectorHeaderName;
+        return header != null
+                && SimpMessageHeaderAccessor.getFirstNativeHeader(header, message.getHeaders()) != null;
+    }
+
+    private static boolean isPattern(String destination) {
+        return destination.indexOf('*') >= 0 || destination.indexOf('{') >= 0;
+    }
+
+    // Sessions subscribed to one destination, each with its subscription ids.
+    // Only touched while holding the destination's entry in `destinations`
+    private static class Subscribers {
+
+        private final Map<String, Set<String>> bySession = new HashMap<>();
+
+        void add(String sessionId, String subscriptionId) {
+            bySession.computeIfAbsent(sessionId, id -> new LinkedHashSet<>()).add(subscriptionId);
+        }
+
+        // True when that was the last subscription
+        boolean remove(String sessionId, String subscriptionId) {
+            Set<String> subscriptionIds = bySession.get(sessionId);
+            if (subscriptionIds != null && subscriptionIds.remove(subscriptionId) && subscriptionIds.isEmpty()) {
+                bySession.remove(sessionId);
+            }
+            return bySession.isEmpty();
+        }
+
+        MultiValueMap<String, String> build() {
+            MultiValueMap<String, String> built = new LinkedMultiValueMap<>(bySession.size());
+            bySession.forEach((sessionId, subscriptionIds) -> built.put(sessionId, List.copyOf(subscriptionIds)));
+            return built;
+        }
+    }
+}
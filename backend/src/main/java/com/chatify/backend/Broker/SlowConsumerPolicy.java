@@ -0,0 +1,8 @@
+package com.chatify.backend.Broker;
+
+// What to do with a WebSocket session that cannot keep up with its outbound traffic
+public enum SlowConsumerPolicy {
+    DROP_OLDEST,    // discard the oldest queued frames until back under the limits
+    COALESCE,       // keep only the newest queued frame per destination, then drop oldest
+    DISCONNECT      // close with 1013 (try again later); the client reconnects and resumes from history
+}
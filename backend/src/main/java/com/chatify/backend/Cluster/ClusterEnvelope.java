@@ -0,0 +1,58 @@
+package com.chatify.backend.Cluster;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// One broker broadcast as it travels between nodes
+public record ClusterEnvelope(String originNodeId,
+                              String epoch,
+                              long sequence,
+                              String destination,
+                              String contentType,
+                              byte[] payload) {
+
+    // Unique across the cluster and across restarts — used to drop duplicates.
+    // The sequence starts over on every boot, so the per-boot epoch keeps a
+    // restarted node's ids from colliding with the ones peers still remember
+    public String id() {
+        return originNodeId + ":" + epoch + ":" + sequence;
+    }
+
+    public byte[] encode() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + 128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeUTF(originNodeId);
+            out.writeUTF(epoch);
+            out.writeLong(sequence);
+            out.writeUTF(destination);
+            out.writeUTF(contentType == null ? "" : contentType);
+            out.writeInt(payload.length);
+            out.write(payload);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static ClusterEnvelope decode(byte[] frame) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame));
+            String origin = in.readUTF();
+            String epoch = in.readUTF();
+            long sequence = in.readLong();
+            String destination = in.readUTF();
+            String contentType = in.readUTF();
+            byte[] payload = new byte[in.readInt()];
+            in.readFully(payload);
+            return new ClusterEnvelope(origin, epoch, sequence, destination,
+                    contentType.isEmpty() ? null : contentType, payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.chatify.backend.Cluster;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/*
+ * Sits on the broker channel: every /topic broadcast made on this node
+ * (SimpMessagingTemplate, @SendTo) is also handed to the ClusterRelay, and
+ * every broadcast relayed from another node is injected into our local
+ * broker so our subscribers get it too.
+ * The same transport carries node-to-node events (publishEvent/onEvent) for
+ * state every node keeps in memory, such as the token revocation list.
+ */
+@Component
+@Slf4j
+public class ClusterFanout implements ChannelInterceptor {
+
+    // Marks messages that came from another node so they are not relayed again
+    public static final String RELAYED_HEADER = "chatifyRelayedFrom";
+
+    // Set on broadcasts every node makes for itself (presence), which must not be relayed
+    public static final String LOCAL_ONLY_HEADER = "chatifyLocalOnly";
+
+    private static final String TOPIC_PREFIX = "/topic/";
+    private static final String EVENT_PREFIX = "cluster-event:";
+    private static final int SEEN_IDS = 10_000;
+
+    @Autowired
+    private ObjectProvider<ClusterRelay> relayProvider;
+
+    @Autowired
+    @Lazy
+    @Qualifier("brokerChannel")
+    private MessageChannel brokerChannel;
+
+    @Value("${chatify.cluster.node-id:}")
+    private String configuredNodeId;
+
+    private String nodeId;
+    private final String epoch = UUID.randomUUID().toString();
+    private ClusterRelay relay;
+    private final AtomicLong sequence = new AtomicLong();
+
+    // event type -> local handler for events published on other nodes
+    private final Map<String, Consumer<byte[]>> eventHandlers = new ConcurrentHashMap<>();
+
+    // Recently delivered envelope ids — a relay may hand us the same one twice
+    private final Map<String, Boolean> seen = new LinkedHashMap<>(SEEN_IDS, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > SEEN_IDS;
+        }
+    };
+
+    @PostConstruct
+    public void init() {
+        nodeId = configuredNodeId.isBlank() ? UUID.randomUUID().toString() : configuredNodeId;
+        relay = relayProvider.getIfAvailable();
+        if (relay != null) {
+            relay.onReceive(this::deliver);
+            log.info("Cluster fan-out enabled on node {} via {}", nodeId, relay.getClass().getSimpleName());
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void onEvent(String type, Consumer<byte[]> handler) {
+        eventHandlers.put(type, handler);
+    }
+
+    // Handed to the other nodes only; the caller has already applied it locally
+    public void publishEvent(String type, byte[] payload) {
+        if (relay == null) return;
+        relay.publish(new ClusterEnvelope(
+                nodeId,
+                epoch,
+                sequence.incrementAndGet(),
+                EVENT_PREFIX + type,
+                null,
+                payload));
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (relay == null) return message;
+
+        MessageHeaders headers = message.getHeaders();
+        if (headers.containsKey(RELAYED_HEADER)
+                || headers.containsKey(LOCAL_ONLY_HEADER)
+                || SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE
+                || !(message.getPayload() instanceof byte[] payload)) {
+            return message;
+        }
+
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (destination == null || !destination.startsWith(TOPIC_PREFIX)) {
+            return message;
+        }
+
+        Object contentType = headers.get(MessageHeaders.CONTENT_TYPE);
+        relay.publish(new ClusterEnvelope(
+                nodeId,
+                epoch,
+                sequence.incrementAndGet(),
+                destination,
+                contentType == null ? null : contentType.toString(),
+                payload));
+        return message;
+    }
+
+    private void deliver(ClusterEnvelope envelope) {
+        // Never re-deliver our own events, and never deliver one twice
+        if (nodeId.equals(envelope.originNodeId())) return;
+        synchronized (seen) {
+            if (seen.put(envelope.id(), Boolean.TRUE) != null) return;
+        }
+
+        if (envelope.destination().startsWith(EVENT_PREFIX)) {
+            Consumer<byte[]> handler = eventHandlers.get(envelope.destination().substring(EVENT_PREFIX.length()));
+            if (handler == null) return;
+            try {
+                handler.accept(envelope.payload());
+            } catch (RuntimeException e) {
+                log.warn("Cluster event {} from {} failed: {}",
+                        envelope.destination(), envelope.originNodeId(), e.getMessage());
+            }
+            return;
+        }
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(envelope.destination());
+        if (envelope.contentType() != null) {
+            accessor.setContentType(MimeType.valueOf(envelope.contentType()));
+        }
+        accessor.setHeader(RELAYED_HEADER, envelope.originNodeId());
+        brokerChannel.send(MessageBuilder.createMessage(envelope.payload(), accessor.getMessageHeaders()));
+    }
+}
@@ -0,0 +1,57 @@
+package com.chatify.backend.Cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+
+/*
+ * Named, time-limited leases in Mongo, for jobs that only one node of the
+ * cluster may run at a time. A lease is one document per name; taking it is
+ * a single upsert that only matches when it is free, expired or already ours,
+ * so two nodes can never both succeed. The holder renews it by taking it
+ * again before it runs out; a node that dies simply lets it expire.
+ */
+@Component
+@Slf4j
+public class ClusterLease {
+
+    private static final String COLLECTION = "cluster_lease";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ClusterFanout clusterFanout;
+
+    // Takes or renews the lease; false while another node holds it
+    public boolean tryAcquire(String name, Duration ttl) {
+        Date now = new Date();
+        Query query = Query.query(Criteria.where("_id").is(name).orOperator(
+                Criteria.where("owner").is(clusterFanout.getNodeId()),
+                Criteria.where("expiresAt").lt(now)));
+        Update update = new Update()
+                .set("owner", clusterFanout.getNodeId())
+                .set("expiresAt", new Date(now.getTime() + ttl.toMillis()));
+        try {
+            mongoTemplate.upsert(query, update, COLLECTION);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // The document exists but did not match: someone else holds it
+            return false;
+        }
+    }
+
+    public void release(String name) {
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(name)
+                .and("owner").is(clusterFanout.getNodeId())), COLLECTION);
+        log.debug("Released lease {}", name);
+    }
+}
@@ -0,0 +1,16 @@
+package com.chatify.backend.Cluster;
+
+import java.util.function.Consumer;
+
+/*
+ * Transport that carries broker broadcasts between nodes.
+ * publish() must not block the caller for long — it runs on the thread
+ * that is sending into the broker channel.
+ */
+public interface ClusterRelay {
+
+    void publish(ClusterEnvelope envelope);
+
+    // Envelopes from other nodes (and possibly our own echoes) are handed here
+    void onReceive(Consumer<ClusterEnvelope> listener);
+}
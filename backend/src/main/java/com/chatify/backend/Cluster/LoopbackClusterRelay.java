@@ -0,0 +1,41 @@
+package com.chatify.backend.Cluster;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/*
+ * In-JVM relay: every application context in this JVM that uses it forms
+ * one "cluster". With a single node it is effectively a no-op, since a node
+ * ignores its own envelopes — this is the default.
+ */
+@Component
+@ConditionalOnProperty(name = "chatify.cluster.relay", havingValue = "loopback", matchIfMissing = true)
+public class LoopbackClusterRelay implements ClusterRelay {
+
+    private static final List<Consumer<ClusterEnvelope>> BUS = new CopyOnWriteArrayList<>();
+
+    // This context's listeners, taken off the shared bus when it closes
+    private final List<Consumer<ClusterEnvelope>> registered = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(ClusterEnvelope envelope) {
+        BUS.forEach(listener -> listener.accept(envelope));
+    }
+
+    @Override
+    public void onReceive(Consumer<ClusterEnvelope> listener) {
+        registered.add(listener);
+        BUS.add(listener);
+    }
+
+    @PreDestroy
+    public void close() {
+        BUS.removeAll(registered);
+        registered.clear();
+    }
+}
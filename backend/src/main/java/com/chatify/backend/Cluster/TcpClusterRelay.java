@@ -0,0 +1,195 @@
+package com.chatify.backend.Cluster;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/*
+ * Full-mesh relay over plain TCP, meant for running several nodes on one box
+ * (chatify.cluster.tcp.peers=localhost:9702,localhost:9703).
+ * Frames are [int length][encoded envelope]. Each peer has its own bounded
+ * outbound queue and writer thread, so a slow or dead peer only loses its
+ * own traffic and never blocks the broker.
+ */
+@Component
+@ConditionalOnProperty(name = "chatify.cluster.relay", havingValue = "tcp")
+@Slf4j
+public class TcpClusterRelay implements ClusterRelay {
+
+    private static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+
+    @Value("${chatify.cluster.tcp.port:9701}")
+    private int port;
+
+    @Value("${chatify.cluster.tcp.peers:}")
+    private String peers;
+
+    @Value("${chatify.cluster.tcp.queue-size:10000}")
+    private int queueSize;
+
+    private final List<Consumer<ClusterEnvelope>> listeners = new CopyOnWriteArrayList<>();
+    private final List<Peer> outbound = new ArrayList<>();
+    private ServerSocket serverSocket;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() throws IOException {
+        running = true;
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(port));
+        startThread("cluster-accept", this::acceptLoop);
+
+        Arrays.stream(peers.split(","))
+                .map(String::trim)
+                .filter(peer -> !peer.isEmpty())
+                .forEach(peer -> {
+                    int sep = peer.lastIndexOf(':');
+                    Peer p = new Peer(peer.substring(0, sep), Integer.parseInt(peer.substring(sep + 1)));
+                    outbound.add(p);
+                    startThread("cluster-peer-" + peer, p::writeLoop);
+                });
+        log.info("Cluster relay listening on {} with peers [{}]", port, peers);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        running = false;
+        serverSocket.close();
+        outbound.forEach(Peer::close);
+    }
+
+    @Override
+    public void publish(ClusterEnvelope envelope) {
+        byte[] frame = envelope.encode();
+        for (Peer peer : outbound) {
+            if (!peer.queue.offer(frame)) {
+                log.warn("Cluster peer {}:{} is backed up, dropping {}", peer.host, peer.port, envelope.id());
+            }
+        }
+    }
+
+    @Override
+    public void onReceive(Consumer<ClusterEnvelope> listener) {
+        listeners.add(listener);
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                startThread("cluster-in-" + socket.getRemoteSocketAddress(), () -> readLoop(socket));
+            } catch (IOException e) {
+                if (running) log.warn("Cluster accept failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void readLoop(Socket socket) {
+        try (socket; DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            while (running) {
+                int length = in.readInt();
+                if (length <= 0 || length > MAX_FRAME_BYTES) {
+                    throw new IOException("Bad frame length " + length);
+                }
+                byte[] frame = new byte[length];
+                in.readFully(frame);
+                ClusterEnvelope envelope = ClusterEnvelope.decode(frame);
+                listeners.forEach(listener -> listener.accept(envelope));
+            }
+        } catch (EOFException e) {
+            // Peer went away
+        } catch (IOException | RuntimeException e) {
+            if (running) log.warn("Cluster connection {} failed: {}", socket.getRemoteSocketAddress(), e.getMessage());
+        }
+    }
+
+    private void startThread(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private class Peer {
+
+        private final String host;
+        private final int port;
+        private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(queueSize);
+        private Socket socket;
+        private DataOutputStream out;
+
+        Peer(String host, int port) {
+            this.host = host;
+            this.port = port;
+        }
+
+        void writeLoop() {
+            while (running) {
+                byte[] frame;
+                try {
+                    frame = queue.poll(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (frame == null) continue;
+
+                try {
+                    if (out == null) connect();
+                    out.writeInt(frame.length);
+                    out.write(frame);
+                    if (queue.isEmpty()) out.flush();
+                } catch (IOException e) {
+                    // Best effort: the frame is lost, reconnect on the next one
+                    log.warn("Cluster peer {}:{} unreachable: {}", host, port, e.getMessage());
+                    close();
+                    sleepQuietly();
+                }
+            }
+        }
+
+        private void connect() throws IOException {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(host, port), 2000);
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        void close() {
+            try {
+                if (socket != null) socket.close();
+            } catch (IOException ignored) {
+                // Already gone
+            }
+            socket = null;
+            out = null;
+        }
+
+        private void sleepQuietly() {
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -1,52 +1,83 @@
 package com.chatify.backend.Config;
 
-import com.chatify.backend.Entity.User;
-import com.chatify.backend.Repository.RoomMemberRepository;
-import com.chatify.backend.Repository.UserRepository;
-import com.chatify.backend.Security.JwtUtil;
+import com.chatify.backend.Broker.OutboundBackpressure;
+import com.chatify.backend.Broker.RoomIndexedSubscriptionRegistry;
+import com.chatify.backend.Cluster.ClusterFanout;
+import com.chatify.backend.Security.StompInboundInterceptor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.messaging.Message;
-import org.springframework.messaging.MessageChannel;
-import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.core.env.Environment;
 import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
-import org.springframework.messaging.simp.stomp.StompCommand;
-import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
-import org.springframework.messaging.support.ChannelInterceptor;
-import org.springframework.messaging.support.MessageHeaderAccessor;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
-
-import java.security.Principal;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     @Autowired
-    private RoomMemberRepository roomMemberRepository;
-    @Autowired
-    private UserRepository userRepository;
+    private StompInboundInterceptor stompInboundInterceptor;
 
     @Autowired
-    private UserDetailsService userDetailsService;
+    private ClusterFanout clusterFanout;
 
     @Autowired
-    private JwtUtil jwtUtil;
+    private OutboundBackpressure outboundBackpressure;
+
+    // STOMP header carrying a SUBSCRIBE selector; empty = selectors off (Spring's default)
+    @Value("${chatify.ws.selector-header:}")
+    private String selectorHeader;
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic", "/queue");
+        config.enableSimpleBroker("/topic", "/queue")
+                // 10s heartbeats both ways; client heartbeats keep presence fresh
+                .setHeartbeatValue(new long[]{10_000, 10_000})
+                .setTaskScheduler(heartbeatScheduler())
+                .setSelectorHeaderName(selectorHeader.isBlank() ? null : selectorHeader);
         // /topic → broadcast (one to many, e.g. room messages)
         // /queue → private (one to one, e.g. direct notifications)
         config.setApplicationDestinationPrefixes("/app");
         config.setUserDestinationPrefix("/user");
         // /user/queue/notifications → sends to specific user only
+        config.configureBrokerChannel().interceptors(clusterFanout);
+        // broadcasts are also relayed to the other nodes of the cluster
+    }
+
+    // Container-managed, so it is started and shut down with the context.
+    // Not an autowire candidate: @Scheduled must keep resolving its own scheduler
+    @Bean(autowireCandidate = false)
+    public ThreadPoolTaskScheduler heartbeatScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("ws-heartbeat-");
+        return scheduler;
+    }
+
+    // Swap the simple broker's pattern-matching registry for the room-indexed one
+    // (static: post-processors must not depend on this configuration instance)
+    @Bean
+    public static BeanPostProcessor roomIndexedSubscriptionRegistryInstaller(Environment environment) {
+        String selectorHeader = environment.getProperty("chatify.ws.selector-header", "");
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof SimpleBrokerMessageHandler broker) {
+                    RoomIndexedSubscriptionRegistry registry = new RoomIndexedSubscriptionRegistry();
+                    registry.setSelectorHeaderName(selectorHeader);
+                    broker.setSubscriptionRegistry(registry);
+                }
+                return bean;
+            }
+        };
     }
 
     @Override
@@ -57,54 +88,26 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     }
 
 
+    // Per-session outbound limits: each session gets its own bounded queue and
+    // the slow-consumer policy decides what happens when it overflows.
+    // Order: STOMP handler -> ConcurrentWebSocketSessionDecorator -> BackpressureWebSocketSession
+    // -> socket. The backpressure session never blocks, so the concurrent decorator's
+    // send-time and buffer limits cannot trigger; the chatify.ws.* limits are
+    // enforced by BackpressureWebSocketSession alone
     @Override
-    public void configureClientInboundChannel(ChannelRegistration registration) {
-        registration.interceptors(new ChannelInterceptor() {
-            @Override
-            public Message<?> preSend(Message<?> message, MessageChannel channel) {
-                StompHeaderAccessor accessor = MessageHeaderAccessor
-                        .getAccessor(message, StompHeaderAccessor.class);
-
-                if (accessor == null) return message;
-
-                // 1. NEW: Handle the CONNECT frame to authenticate the user
-                if (StompCommand.CONNECT.equals(accessor.getCommand())) {
-                    String authHeader = accessor.getFirstNativeHeader("Authorization");
-
-                    if (authHeader != null && authHeader.startsWith("Bearer ")) {
-                        String token = authHeader.substring(7);
-                        // Use your JwtUtil to get the email/username
-                        String username = jwtUtil.extractUsername(token);
-
-                        if (username != null) {
-                            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                            if (jwtUtil.isTokenValid(token, username)) {
-                                // Set the user in the accessor so accessor.getUser() works later
-                                UsernamePasswordAuthenticationToken auth =
-                                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                                accessor.setUser(auth);
-                            }
-                        }
-                    }
-                }
-
-                // 2. EXISTING: Validate room membership
-                if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())
-                        || StompCommand.SEND.equals(accessor.getCommand())) {
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.addDecoratorFactory(outboundBackpressure::decorate);
+    }
 
-                    String destination = accessor.getDestination();
-                    if (destination != null && destination.contains("/room/")) {
-                        // This will now work because accessor.setUser() was called during CONNECT
-                        Principal principal = accessor.getUser();
-                        if (principal == null) {
-                            throw new MessageDeliveryException("Not authenticated");
-                        }
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        registration.taskExecutor().corePoolSize(threads).maxPoolSize(threads);
+    }
 
-                        // ... rest of your repository check logic ...
-                    }
-                }
-                return message;
-            }
-        });
+    // One inbound interceptor: authenticate on CONNECT, enforce ACLs on SUBSCRIBE/SEND
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(stompInboundInterceptor);
     }
-}
\ No newline at end of file
+}
@@ -2,10 +2,20 @@ package com.chatify.backend.Controller;
 
 import com.chatify.backend.DTO.ChatMessageRequest;
 import com.chatify.backend.DTO.EditMessageRequest;
+import com.chatify.backend.DTO.MemberPageResponse;
+import com.chatify.backend.DTO.MessageHistoryResponse;
+import com.chatify.backend.DTO.MessageSearchResponse;
+import com.chatify.backend.DTO.TypingRequest;
 import com.chatify.backend.Entity.Message;
-import com.chatify.backend.Entity.User;
-import com.chatify.backend.Repository.MessageRepository;
+import com.chatify.backend.Exception.UnauthorizedException;
+import com.chatify.backend.Security.CurrentUser;
+import com.chatify.backend.Service.ChatRoomService;
+import com.chatify.backend.Service.MessageSearchService;
 import com.chatify.backend.Service.MessageService;
+import com.chatify.backend.Service.RoomMemberIndex;
+import com.chatify.backend.Service.SessionIdentity;
+import com.chatify.backend.Service.SessionMembershipCache;
+import com.chatify.backend.Service.TypingIndicatorService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
@@ -13,11 +23,13 @@ import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.security.Principal;
-import java.util.List;
 
 @RestController
 public class ChatController {
@@ -28,14 +40,34 @@ public class ChatController {
     @Autowired
     private MessageService messageService;
 
+    @Autowired
+    private ChatRoomService chatRoomService;
+
+    @Autowired
+    private SessionMembershipCache sessionMembershipCache;
+
+    @Autowired
+    private TypingIndicatorService typingIndicatorService;
+
+    @Autowired
+    private MessageSearchService messageSearchService;
+
+    @Autowired
+    private RoomMemberIndex roomMemberIndex;
+
+    @Autowired
+    private CurrentUser currentUser;
+
 
     // Handle incoming real-time messages
     @MessageMapping("/chat/{roomId}")
     @SendTo("/topic/room/{roomId}")
     public void sendMessage(@DestinationVariable String roomId,
                                @Payload ChatMessageRequest message,
-                               Principal principal) {
-        Message saved = messageService.saveMessage(roomId,principal.getName(),message);
+                               Principal principal,
+                               SimpMessageHeaderAccessor headerAccessor) {
+        Message saved = messageService.saveMessage(roomId, headerAccessor.getSessionId(),
+                principal.getName(), message);
         messagingTemplate.convertAndSend("/topic/room/" + roomId, saved);
     }
 
@@ -49,6 +81,7 @@ public class ChatController {
 
         // FIX 2: Capture the return value in a variable called 'edited'
         Message edited = messageService.editMessage(
+                roomId,
                 request.getMessageId(),
                 currentUserEmail,
                 request.getNewContent()
@@ -59,28 +92,75 @@ public class ChatController {
 
         System.out.println("📢 Broadcasted edit for message: " + edited.getId());
     }
+    // Typing indicator: throttled and broadcast in batches, never persisted
+    @MessageMapping("/chat/{roomId}/typing")
+    public void typing(@DestinationVariable String roomId,
+                       @Payload(required = false) TypingRequest request,
+                       SimpMessageHeaderAccessor headerAccessor) {
+        SessionIdentity identity = sessionMembershipCache.get(headerAccessor.getSessionId());
+        if (identity == null) return;
+        typingIndicatorService.onTyping(roomId, identity, request == null || request.isTyping());
+    }
+
     // Fetch message history (REST, not WebSocket)
     @GetMapping("/api/messages/{roomId}")
     @ResponseBody
     public Page<Message> getMessages(@PathVariable String roomId,
                                      @RequestParam(defaultValue = "0") int page,
-                                     @RequestParam(defaultValue = "50") int size) {
+                                     @RequestParam(defaultValue = "50") int size,
+                                     @AuthenticationPrincipal UserDetails userDetails) {
+        requireMember(roomId, userDetails);
         return messageService.getMessages(roomId, page, size);
     }
+
+    // Cursor-based history: ?before=<nextCursor from the previous call>
+    @GetMapping("/api/messages/{roomId}/history")
+    public ResponseEntity<MessageHistoryResponse> getMessageHistory(
+            @PathVariable String roomId,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "50") int limit,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        requireMember(roomId, userDetails);
+        return ResponseEntity.ok(messageService.getMessageHistory(roomId, before, limit));
+    }
+
+    // Full-text search: one room with ?roomId=, otherwise every room the caller is in
+    @GetMapping("/api/messages/search")
+    public ResponseEntity<MessageSearchResponse> searchMessages(
+            @RequestParam String q,
+            @RequestParam(required = false) String roomId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        Long userId = currentUser.id(userDetails);
+        if (roomId == null) {
+            return ResponseEntity.ok(messageSearchService.searchUserRooms(userId, q, page, size));
+        }
+        if (!roomMemberIndex.isMember(roomId, userId)) {
+            throw new UnauthorizedException("You are not a member of this room");
+        }
+        return ResponseEntity.ok(messageSearchService.searchRoom(roomId, q, page, size));
+    }
+
     // Handle Deleting a Message (Soft Delete)
     @MessageMapping("/chat/{roomId}/delete")
     public void deleteMessage(@DestinationVariable String roomId, @Payload String messageId, Principal principal) {
         // principal.getName() usually returns the username/email of the logged-in user
-        messageService.deleteMessage(messageId, principal.getName());
+        messageService.deleteMessage(roomId, messageId, principal.getName());
 
         // Broadcast the deletion to the room so the UI removes it for everyone
         messagingTemplate.convertAndSend("/topic/room/" + roomId + "/delete", messageId);
     }
 
+    // Members of a room, one keyset page at a time: ?after=<nextCursor>&limit=50
     @GetMapping("/api/rooms/{roomId}/members")
-    public ResponseEntity<List<User>> getRoomMembers(@PathVariable String roomId) {
-        List<User> members = messageService.getRoomMembers(roomId);
-        return ResponseEntity.ok(members);
+    public ResponseEntity<MemberPageResponse> getRoomMembers(
+            @PathVariable Long roomId,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "50") int limit,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        requireMember(String.valueOf(roomId), userDetails);
+        return ResponseEntity.ok(chatRoomService.getMemberPage(roomId, after, limit));
     }
 
     @DeleteMapping("/api/rooms/{roomId}/members/{userId}")
@@ -90,4 +170,11 @@ public class ChatController {
         messageService.removeMember(roomId, userId, principal.getName());
         return ResponseEntity.ok().build();
     }
+
+    // History (live and archived) is only readable by the room's members
+    private void requireMember(String roomId, UserDetails userDetails) {
+        if (!roomMemberIndex.isMember(roomId, currentUser.id(userDetails))) {
+            throw new UnauthorizedException("You are not a member of this room");
+        }
+    }
 }
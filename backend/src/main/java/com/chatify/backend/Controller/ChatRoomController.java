@@ -1,27 +1,35 @@
 package com.chatify.backend.Controller;
 
 
+import com.chatify.backend.DTO.ChannelDirectoryEntry;
 import com.chatify.backend.DTO.ChatRoomResponse;
 import com.chatify.backend.DTO.CreateRoomRequest;
+import com.chatify.backend.DTO.MemberPageResponse;
+import com.chatify.backend.DTO.SidebarEntry;
 
 import com.chatify.backend.Entity.ChatRoom;
-import com.chatify.backend.Entity.RoomMember;
 import com.chatify.backend.Entity.User;
 import com.chatify.backend.Enum.ChatRoomType;
 import com.chatify.backend.Enum.MemberType;
 import com.chatify.backend.Exception.ResourceNotFoundException;
 import com.chatify.backend.Exception.UnauthorizedException;
+import com.chatify.backend.Repository.ChannelMemberCount;
 import com.chatify.backend.Repository.ChatRoomRepository;
 import com.chatify.backend.Repository.RoomMemberRepository;
 import com.chatify.backend.Repository.UserRepository;
+import com.chatify.backend.Security.CurrentUser;
+import com.chatify.backend.Service.ChannelDirectoryService;
 import com.chatify.backend.Service.ChatRoomService;
+import com.chatify.backend.Service.RoomMemberIndex;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RequestMapping("/api/rooms")
@@ -40,18 +48,32 @@ public class ChatRoomController {
 
     @Autowired
     private RoomMemberRepository roomMemberRepository;
+
+    @Autowired
+    private ChannelDirectoryService channelDirectoryService;
+
+    @Autowired
+    private RoomMemberIndex roomMemberIndex;
+
+    @Autowired
+    private CurrentUser currentUser;
     // Get all rooms for the logged-in user
     @GetMapping("/my-rooms")
     public ResponseEntity<List<ChatRoom>> getRooms(@AuthenticationPrincipal UserDetails userDetails)
     {
-        User user = userRepository.findByEmail(userDetails.getUsername()).orElseThrow(()->new RuntimeException("user not found"));
-        return ResponseEntity.ok(chatRoomService.getUserRooms(user.getId()));
+        return ResponseEntity.ok(chatRoomService.getUserRooms(currentUser.id(userDetails)));
+    }
+    // Sidebar in one call: rooms with last message preview and unread count, newest first
+    @GetMapping("/sidebar")
+    public ResponseEntity<List<SidebarEntry>> getSidebar(@AuthenticationPrincipal UserDetails userDetails)
+    {
+        return ResponseEntity.ok(chatRoomService.getSidebar(currentUser.id(userDetails)));
     }
     // Create a group or channel
     @PostMapping("/create")
     public ResponseEntity<ChatRoom> createRoom(@RequestBody CreateRoomRequest createRoomRequest, @AuthenticationPrincipal UserDetails userDetails)
     {
-        User user = userRepository.findByEmail(userDetails.getUsername()).orElseThrow(()->new RuntimeException("User not found"));
+        User user = currentUser.load(userDetails);   // The creator becomes the room's admin member
         ChatRoom room = chatRoomService.createRoom(createRoomRequest.getName(),createRoomRequest.getDescription(),createRoomRequest.getType(),user);
         return ResponseEntity.ok(room);
     }
@@ -59,7 +81,7 @@ public class ChatRoomController {
     @PostMapping("/dm/{targetUserId}")
     public ResponseEntity<ChatRoom> getOrCreateDM(@PathVariable Long targetUserId, @AuthenticationPrincipal UserDetails userDetails)
     {
-        User user = userRepository.findByEmail(userDetails.getUsername()).orElseThrow(()->new RuntimeException("User not found"));
+        User user = currentUser.load(userDetails);   // Both names go into the DM
         User targetUser = userRepository.findById(targetUserId).orElseThrow(()->new RuntimeException("User not found"));
         ChatRoom dm = chatRoomService.getOrCreateDM(user,targetUser);
         return ResponseEntity.ok(dm);
@@ -78,12 +100,10 @@ public class ChatRoomController {
     public ResponseEntity<?> deleteRoom(
             @PathVariable Long roomId,
             @AuthenticationPrincipal UserDetails userDetails) {
-        User requester = userRepository.findByEmail(
-                userDetails.getUsername()).orElseThrow();
-        chatRoomService.deactivateRoom(roomId, requester.getId());
+        chatRoomService.deactivateRoom(roomId, currentUser.id(userDetails));
         return ResponseEntity.ok("Room deactivated");
     }
-    // Get a single room by ID (with members)
+    // Get a single room by ID (with its member count)
     @GetMapping("/{roomId}")
     public ResponseEntity<ChatRoomResponse> getRoom(
             @PathVariable Long roomId,
@@ -95,32 +115,55 @@ public class ChatRoomController {
                                 "Room not found with id: " + roomId));
 
         // Verify requester is a member
-        User user = userRepository
-                .findByEmail(userDetails.getUsername())
-                .orElseThrow();
+        if (!roomMemberIndex.isMember(String.valueOf(roomId), currentUser.id(userDetails))) {
+            throw new UnauthorizedException(
+                    "You are not a member of this room");
+        }
 
-        if (!roomMemberRepository.existsByRoomIdAndUserId(
-                String.valueOf(roomId), user.getId())) {
+        // Only the count here — member lists of big channels are paged separately
+        return ResponseEntity.ok(
+                ChatRoomResponse.from(room, roomMemberRepository.countByRoomId(roomId)));
+    }
+
+    // Members of a room, one keyset page at a time: ?after=<nextCursor>&limit=50
+    @GetMapping("/{roomId}/members/page")
+    public ResponseEntity<MemberPageResponse> getMemberPage(
+            @PathVariable Long roomId,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "50") int limit,
+            @AuthenticationPrincipal UserDetails userDetails) {
+
+        if (!roomMemberIndex.isMember(String.valueOf(roomId), currentUser.id(userDetails))) {
             throw new UnauthorizedException(
                     "You are not a member of this room");
         }
 
-        List<RoomMember> members =
-                roomMemberRepository.findByRoomId(roomId);
+        return ResponseEntity.ok(chatRoomService.getMemberPage(roomId, after, limit));
+    }
 
-        return ResponseEntity.ok(
-                ChatRoomResponse.from(room, members));
+    // Browse public channels: ?sort=members|activity, paged, no member lists
+    @GetMapping("/directory")
+    public ResponseEntity<Page<ChannelDirectoryEntry>> getDirectory(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "members") String sort) {
+        return ResponseEntity.ok(channelDirectoryService.getDirectory(page, size, sort));
     }
 
-    // Get all public rooms (for discovery/browse)
+    // Get all public rooms (for discovery/browse); counts only, page through
+    // /{roomId}/members/page for the members themselves
     @GetMapping("/public")
     public ResponseEntity<List<ChatRoomResponse>> getPublicRooms() {
+        Map<Long, Long> memberCounts = chatRoomRepository
+                .findMemberCountsByType(ChatRoomType.CHANNEL)
+                .stream()
+                .collect(Collectors.toMap(ChannelMemberCount::getId, ChannelMemberCount::getMemberCount));
         return ResponseEntity.ok(
                 chatRoomRepository
                         .findByTypeAndActiveTrue(ChatRoomType.CHANNEL)
                         .stream()
                         .map(room -> ChatRoomResponse.from(room,
-                                roomMemberRepository.findByRoomId(room.getId())))
+                                memberCounts.getOrDefault(room.getId(), 0L)))
                         .collect(Collectors.toList())
         );
     }
@@ -0,0 +1,38 @@
+package com.chatify.backend.Controller;
+
+import com.chatify.backend.Exception.UnauthorizedException;
+import com.chatify.backend.Security.CurrentUser;
+import com.chatify.backend.Service.PresenceService;
+import com.chatify.backend.Service.RoomMemberIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/rooms")
+public class PresenceController {
+
+    @Autowired
+    private CurrentUser currentUser;
+
+    @Autowired
+    private PresenceService presenceService;
+
+    @Autowired
+    private RoomMemberIndex roomMemberIndex;
+
+    // Ids of the room's members who are online right now; later changes
+    // arrive as deltas on /topic/room/{roomId}/presence
+    @GetMapping("/{roomId}/presence")
+    public ResponseEntity<List<Long>> getOnlineMembers(@PathVariable String roomId,
+                                                       @AuthenticationPrincipal UserDetails userDetails) {
+        if (!roomMemberIndex.isMember(roomId, currentUser.id(userDetails))) {
+            throw new UnauthorizedException("You are not a member of this room");
+        }
+        return ResponseEntity.ok(presenceService.onlineIn(roomId));
+    }
+}
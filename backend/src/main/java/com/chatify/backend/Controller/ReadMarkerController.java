@@ -0,0 +1,65 @@
+package com.chatify.backend.Controller;
+
+import com.chatify.backend.DTO.ReadMarkerRequest;
+import com.chatify.backend.DTO.SeenByResponse;
+import com.chatify.backend.Exception.UnauthorizedException;
+import com.chatify.backend.Security.CurrentUser;
+import com.chatify.backend.Service.ReadReceiptService;
+import com.chatify.backend.Service.RoomMemberIndex;
+import com.chatify.backend.Service.UnreadCounterService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/rooms")
+public class ReadMarkerController {
+
+    @Autowired
+    private CurrentUser currentUser;
+
+    @Autowired
+    private UnreadCounterService unreadCounterService;
+
+    @Autowired
+    private RoomMemberIndex roomMemberIndex;
+
+    @Autowired
+    private ReadReceiptService readReceiptService;
+
+    // Report the last message read in a room
+    @PostMapping("/{roomId}/read")
+    public ResponseEntity<?> markRead(@PathVariable String roomId,
+                                      @RequestBody(required = false) ReadMarkerRequest request,
+                                      @AuthenticationPrincipal UserDetails userDetails) {
+        Long userId = currentUser.id(userDetails);
+        if (!roomMemberIndex.isMember(roomId, userId)) {
+            throw new UnauthorizedException("You are not a member of this room");
+        }
+        unreadCounterService.markRead(userId, roomId,
+                request == null ? null : request.getMessageId());
+        return ResponseEntity.ok().build();
+    }
+
+    // Unread counts for all of the user's rooms: { "<roomId>": count }
+    @GetMapping("/unread")
+    public ResponseEntity<Map<String, Long>> getUnreadCounts(
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.ok(unreadCounterService.getUnreadCounts(currentUser.id(userDetails)));
+    }
+
+    // Who has read a message in a GROUP room, answered from the receipt bitmaps
+    @GetMapping("/{roomId}/messages/{messageId}/seen")
+    public ResponseEntity<SeenByResponse> getSeenBy(@PathVariable String roomId,
+                                                    @PathVariable String messageId,
+                                                    @AuthenticationPrincipal UserDetails userDetails) {
+        if (!roomMemberIndex.isMember(roomId, currentUser.id(userDetails))) {
+            throw new UnauthorizedException("You are not a member of this room");
+        }
+        return ResponseEntity.ok(readReceiptService.seenBy(roomId, messageId));
+    }
+}
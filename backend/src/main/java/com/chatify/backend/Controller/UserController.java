@@ -1,19 +1,24 @@
 package com.chatify.backend.Controller;
 
 
+import com.chatify.backend.DTO.UserPageResponse;
 import com.chatify.backend.DTO.UserResponse;
 import com.chatify.backend.Entity.User;
 import com.chatify.backend.Exception.ResourceNotFoundException;
+import com.chatify.backend.Security.CurrentUser;
+import com.chatify.backend.Service.UserExportService;
 import com.chatify.backend.Service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import com.chatify.backend.Repository.UserRepository;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/users")
@@ -22,37 +27,70 @@ public class UserController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private CurrentUser currentUser;
+
     @Autowired
     private UserService userService;
+
+    @Autowired
+    private UserExportService userExportService;
+
+    // Deprecated: at most the first 1000 active users, never the whole table.
+    // Use /page; the headers point clients there
+    @Deprecated
     @GetMapping
     public ResponseEntity<List<UserResponse>> getAllUsers()
     {
-        return ResponseEntity.ok(userService.getAllUsers());
+        return ResponseEntity.ok()
+                .header("Deprecation", "true")
+                .header(HttpHeaders.LINK, "</api/users/page>; rel=\"successor-version\"")
+                .body(userService.getAllUsers());
+    }
+
+    // User directory, one keyset page at a time: ?after=<nextCursor>&limit=50
+    @GetMapping("/page")
+    public ResponseEntity<UserPageResponse> getUsers(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "50") int limit)
+    {
+        return ResponseEntity.ok(userService.getUsers(after, limit));
+    }
+
+    // Whole directory as NDJSON, streamed straight from the database
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUsers()
+    {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(userExportService::export);
     }
 
     // Get current logged-in user's profile
     @GetMapping("/me")
     public ResponseEntity<UserResponse> getCurrentUser(
             @AuthenticationPrincipal UserDetails userDetails) {
-        User user = userRepository.findByEmail(userDetails.getUsername())
-                .orElseThrow(() ->
-                        new ResourceNotFoundException("User not found"));
-        return ResponseEntity.ok(UserResponse.from(user));
+        return ResponseEntity.ok(UserResponse.from(currentUser.load(userDetails)));
+    }
+
+    // Deactivate the current user's account
+    @DeleteMapping("/me")
+    public ResponseEntity<?> deactivateCurrentUser(
+            @AuthenticationPrincipal UserDetails userDetails) {
+        userService.deactivate(userDetails.getUsername());
+        return ResponseEntity.ok("Account deactivated");
     }
 
     // Search users by username (for starting a DM)
+    // Prefix matches first, then names containing the query
     @GetMapping("/search")
     public ResponseEntity<List<UserResponse>> searchUsers(
             @RequestParam String username,
+            @RequestParam(defaultValue = "20") int limit,
             @AuthenticationPrincipal UserDetails userDetails) {
         // Exclude current user from results
         return ResponseEntity.ok(
-                userRepository.searchByUsername(username,
-                                userDetails.getUsername())
-                        .stream()
-                        .map(UserResponse::from)
-                        .collect(Collectors.toList())
-        );
+                userService.searchUsers(username, limit, userDetails.getUsername()));
     }
 
     // Get any user's public profile by ID
@@ -0,0 +1,34 @@
+package com.chatify.backend.DTO;
+
+import com.chatify.backend.Repository.ChannelMemberCount;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+// One public channel in the directory — no member list, just the count
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ChannelDirectoryEntry {
+
+    private Long id;
+    private String name;
+    private String description;
+    private long memberCount;
+    private OffsetDateTime lastActivityAt;
+
+    public static ChannelDirectoryEntry from(ChannelMemberCount channel,
+                                             OffsetDateTime lastActivityAt) {
+        return ChannelDirectoryEntry.builder()
+                .id(channel.getId())
+                .name(channel.getName())
+                .description(channel.getDescription())
+                .memberCount(channel.getMemberCount())
+                .lastActivityAt(lastActivityAt)
+                .build();
+    }
+}
@@ -1,14 +1,11 @@
 package com.chatify.backend.DTO;
 
 import com.chatify.backend.Entity.ChatRoom;
-import com.chatify.backend.Entity.RoomMember;
 import com.chatify.backend.Enum.ChatRoomType;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import java.util.List;
 import java.time.OffsetDateTime;
-import java.util.stream.Collectors;
 
 import lombok.Builder;
 
@@ -24,11 +21,11 @@ public class ChatRoomResponse {
     private ChatRoomType type;
     private String avatarUrl;
     private UserResponse createdBy;
-    private List<RoomMemberResponse> members;
+    private long memberCount;
     private OffsetDateTime createdAt;
 
-    public static ChatRoomResponse from(ChatRoom room,
-                                        List<RoomMember> members) {
+    // Members are not included; page through /members/page instead
+    public static ChatRoomResponse from(ChatRoom room, long memberCount) {
         return ChatRoomResponse.builder()
                 .id(room.getId())
                 .name(room.getName())
@@ -36,9 +33,7 @@ public class ChatRoomResponse {
                 .type(room.getType())
                 .avatarUrl(room.getAvatarUrl())
                 .createdBy(UserResponse.from(room.getCreatedBy()))
-                .members(members.stream()
-                        .map(RoomMemberResponse::from)
-                        .collect(Collectors.toList()))
+                .memberCount(memberCount)
                 .createdAt(room.getCreatedAt())
                 .build();
     }
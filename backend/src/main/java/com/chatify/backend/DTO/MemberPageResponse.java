@@ -0,0 +1,20 @@
+package com.chatify.backend.DTO;
+
+import com.chatify.backend.Repository.MemberSummary;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MemberPageResponse {
+
+    private List<MemberSummary> members;   // Ordered by user id
+    private Long nextCursor;               // Pass as ?after= for the next page, null on the last page
+    private boolean hasMore;
+}
@@ -0,0 +1,20 @@
+package com.chatify.backend.DTO;
+
+import com.chatify.backend.Entity.Message;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MessageHistoryResponse {
+
+    private List<Message> messages;     // Newest first
+    private String nextCursor;          // Pass as ?before= to load older messages, null at the start of history
+    private boolean hasMore;
+}
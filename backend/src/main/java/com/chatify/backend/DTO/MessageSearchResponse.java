@@ -0,0 +1,22 @@
+package com.chatify.backend.DTO;
+
+import com.chatify.backend.Entity.Message;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MessageSearchResponse {
+
+    private List<Message> messages;   // Best match first
+    private int page;
+    private int size;
+    private boolean hasMore;
+    private boolean partial;          // Some rooms were not searched in time
+}
@@ -0,0 +1,20 @@
+package com.chatify.backend.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Broadcast on /topic/room/{roomId}/presence: who came online or went offline since the last one
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PresenceDelta {
+
+    private String roomId;
+    private List<Long> online;
+    private List<Long> offline;
+}
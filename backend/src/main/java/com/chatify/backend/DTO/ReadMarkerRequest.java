@@ -0,0 +1,14 @@
+package com.chatify.backend.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadMarkerRequest {
+
+    // Last message the user has seen; null means "everything is read"
+    private String messageId;
+}
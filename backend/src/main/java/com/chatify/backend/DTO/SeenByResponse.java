@@ -0,0 +1,19 @@
+package com.chatify.backend.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SeenByResponse {
+
+    private String messageId;
+    private int count;
+    private List<Long> userIds;   // Members who have read this message or a later one
+}
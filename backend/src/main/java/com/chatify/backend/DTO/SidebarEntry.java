@@ -0,0 +1,43 @@
+package com.chatify.backend.DTO;
+
+import com.chatify.backend.Entity.RoomActivity;
+import com.chatify.backend.Enum.ChatRoomType;
+import com.chatify.backend.Repository.SidebarRoom;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+// One row of the sidebar: the room, a preview of its last message and the unread count
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SidebarEntry {
+
+    private Long roomId;
+    private String name;          // DMs show the other participant's username
+    private ChatRoomType type;
+    private String avatarUrl;
+    private String lastMessageSnippet;
+    private String lastSenderName;
+    private OffsetDateTime lastMessageAt;
+    private long unreadCount;
+
+    public static SidebarEntry from(SidebarRoom room, RoomActivity activity, long unreadCount) {
+        SidebarEntryBuilder entry = SidebarEntry.builder()
+                .roomId(room.getId())
+                .name(room.getPeerName() != null ? room.getPeerName() : room.getName())
+                .type(room.getType())
+                .avatarUrl(room.getAvatarUrl())
+                .unreadCount(unreadCount);
+        if (activity != null) {
+            entry.lastMessageSnippet(activity.getLastMessageSnippet())
+                    .lastSenderName(activity.getLastSenderName())
+                    .lastMessageAt(activity.getLastMessageAt());
+        }
+        return entry.build();
+    }
+}
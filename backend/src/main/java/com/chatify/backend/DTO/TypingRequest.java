@@ -0,0 +1,16 @@
+package com.chatify.backend.DTO;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TypingRequest {
+
+    // true while the user keeps typing, false once they stop or send
+    @JsonProperty("typing")
+    private boolean typing = true;
+}
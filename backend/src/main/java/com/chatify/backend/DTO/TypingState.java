@@ -0,0 +1,25 @@
+package com.chatify.backend.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Broadcast on /topic/room/{roomId}/typing: everyone currently typing in the room
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TypingState {
+
+    private String roomId;
+    private List<Typist> typing;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Typist {
+        private Long userId;
+        private String username;
+    }
+}
@@ -0,0 +1,19 @@
+package com.chatify.backend.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserPageResponse {
+
+    private List<UserResponse> users;   // Ordered by id
+    private Long nextCursor;            // Pass as ?after= for the next page, null on the last page
+    private boolean hasMore;
+}
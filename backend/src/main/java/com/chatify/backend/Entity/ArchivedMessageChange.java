@@ -0,0 +1,33 @@
+package com.chatify.backend.Entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.OffsetDateTime;
+
+// An edit or delete of a message that was already moved into a segment file.
+// Segments are immutable, so archive reads apply these on top of them
+@Document(collection = "archived_message_change")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedMessageChange {
+
+    @Id
+    private String messageId;
+
+    @Indexed
+    private String roomId;
+
+    private OffsetDateTime timestamp;   // Of the message: places it in its block without reading
+
+    private String content;             // Edited content; null when never edited
+    private OffsetDateTime editedAt;
+
+    private boolean deleted;
+    private OffsetDateTime deletedAt;
+}
@@ -32,6 +32,11 @@ public class ChatRoom {
     @Column(name="is_active",nullable = false)
     private boolean active=true;
 
+    // "<smaller userId>:<larger userId>" for an active DM, null otherwise.
+    // The unique index makes concurrent creation of the same DM impossible
+    @Column(name = "dm_key", unique = true)
+    private String dmKey;
+
     @ManyToOne
     @JoinColumn(name = "created_by")
     private User createdBy;
@@ -2,17 +2,25 @@ package com.chatify.backend.Entity;
 
 
 import com.chatify.backend.Enum.MessageType;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.TextScore;
 
 import java.time.OffsetDateTime;
 
 @Document(collection = "message")
+// Serves both page-based and cursor-based history for a room
+@CompoundIndex(name = "room_history_idx", def = "{'roomId': 1, 'isDeleted': 1, 'timestamp': -1, '_id': -1}")
+// Full-text search; the roomId prefix keeps every search inside one room's postings
+@CompoundIndex(name = "room_text_idx", def = "{'roomId': 1, 'content': 'text'}")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -38,5 +46,14 @@ public class Message {
     private OffsetDateTime timestamp;
     private OffsetDateTime editedAt;
 
+    // Set on soft delete; only deleted messages carry it, so the index stays small
+    @Indexed(name = "deleted_at_idx", sparse = true)
+    private OffsetDateTime deletedAt;
+
+    // Relevance of a search hit; filled by text queries only, never stored
+    @TextScore
+    @JsonIgnore
+    private Float score;
+
 
 }
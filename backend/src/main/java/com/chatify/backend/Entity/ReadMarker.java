@@ -0,0 +1,34 @@
+package com.chatify.backend.Entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.OffsetDateTime;
+
+// How far a user has read in a room, and how many messages arrived since
+@Document(collection = "read_marker")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadMarker {
+
+    @Id
+    private String id;              // "<userId>:<roomId>"
+
+    @Indexed
+    private Long userId;
+    private String roomId;
+
+    private String lastReadMessageId;
+    private OffsetDateTime lastReadAt;
+
+    private long unreadCount;
+
+    public static String key(Long userId, String roomId) {
+        return userId + ":" + roomId;
+    }
+}
@@ -0,0 +1,48 @@
+package com.chatify.backend.Entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+// Read receipts of one GROUP room: the last message each member has read.
+// Every member is its own field, so nodes update members independently
+@Document(collection = "read_receipts")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadReceipts {
+
+    @Id
+    private String roomId;
+
+    private Map<String, Read> readers;   // userId -> last message read
+    private OffsetDateTime updatedAt;
+
+    // Earlier layout (member ordinals and one bitmap per position); only read,
+    // to convert documents written before per-member fields
+    private List<Long> members;
+    private List<Position> positions;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Read {
+        private OffsetDateTime timestamp;  // Of the last message read
+        private String messageId;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Position {
+        private OffsetDateTime timestamp;
+        private String messageId;
+        private byte[] readers;            // CompactBitmap of member ordinals
+    }
+}
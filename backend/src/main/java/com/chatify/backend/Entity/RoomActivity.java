@@ -0,0 +1,28 @@
+package com.chatify.backend.Entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.OffsetDateTime;
+
+// Last activity of a room with a preview of its newest message,
+// kept up to date by RoomActivityService
+@Document(collection = "room_activity")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomActivity {
+
+    @Id
+    private String roomId;
+
+    private OffsetDateTime lastMessageAt;
+    private long messageCount;
+
+    private String lastMessageId;
+    private String lastMessageSnippet;
+    private String lastSenderName;
+}
@@ -9,6 +9,9 @@ import lombok.NoArgsConstructor;
 import java.time.OffsetDateTime;
 
 @Entity
+// Serves the membership check and the member page: both seek on room_id
+// and, for the page, walk user_id in order straight off the index
+@Table(indexes = @Index(name = "idx_room_member_room_user", columnList = "room_id, user_id"))
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -31,6 +34,7 @@ public class RoomMember {
 
     private OffsetDateTime joinedAt;
 
+    @PrePersist
     public void prePersist()
     {
         joinedAt = OffsetDateTime.now();
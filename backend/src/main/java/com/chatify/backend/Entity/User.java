@@ -1,6 +1,7 @@
 package com.chatify.backend.Entity;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -25,6 +26,7 @@ public class User {
     @Column(unique = true,nullable = false)
     private String email;
 
+    @JsonIgnore   // entities still reach some responses; never serialize the hash
     @Column(nullable = false)
     private String passwordHash;
 
@@ -0,0 +1,25 @@
+package com.chatify.backend.Event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Published whenever a RoomMember row is created or deleted, so in-memory
+// views of membership (session caches, room indexes) can follow along.
+// Changes made on other nodes are published again locally with relayed set
+@Getter
+@AllArgsConstructor
+public class RoomMembershipChangedEvent {
+
+    private final Long roomId;
+    private final Long userId;
+    private final boolean joined;   // true = added to room, false = removed
+    private final boolean relayed;  // true = the change was made on another node
+
+    public static RoomMembershipChangedEvent joined(Long roomId, Long userId) {
+        return new RoomMembershipChangedEvent(roomId, userId, true, false);
+    }
+
+    public static RoomMembershipChangedEvent left(Long roomId, Long userId) {
+        return new RoomMembershipChangedEvent(roomId, userId, false, false);
+    }
+}
@@ -0,0 +1,8 @@
+package com.chatify.backend.Exception;
+
+// Used when: a request parameter is malformed, e.g. an invalid history cursor
+public class BadRequestException extends RuntimeException {
+    public BadRequestException(String message) {
+        super(message);
+    }
+}
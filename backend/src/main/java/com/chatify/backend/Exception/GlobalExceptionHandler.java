@@ -3,9 +3,11 @@ package com.chatify.backend.Exception;
 import com.chatify.backend.DTO.ErrorResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.security.authentication.AccountStatusException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
@@ -80,6 +82,26 @@ public class GlobalExceptionHandler {
                 ));
     }
 
+    /*
+     * 400 Bad Request
+     * Thrown when: a request parameter is malformed (e.g. a bad history cursor)
+     */
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<ErrorResponse> handleBadRequest(
+            BadRequestException ex,
+            HttpServletRequest request) {
+
+        log.warn("Bad request: {}", ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ErrorResponse.of(
+                        400,
+                        "Bad Request",
+                        ex.getMessage(),
+                        request.getRequestURI()
+                ));
+    }
+
     /*
      * 400 Bad Request — Validation Failures
      * Thrown when: @Valid fails on a request DTO
@@ -126,6 +148,49 @@ public class GlobalExceptionHandler {
                 ));
     }
 
+    /*
+     * 401 Unauthorized — Account Status
+     * Thrown when: a deactivated (disabled/locked/expired) account logs in
+     * Same answer as a wrong password, so the status of an email isn't revealed
+     */
+    @ExceptionHandler(AccountStatusException.class)
+    public ResponseEntity<ErrorResponse> handleAccountStatus(
+            AccountStatusException ex,
+            HttpServletRequest request) {
+
+        log.warn("Login to inactive account at {}: {}", request.getRequestURI(), ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body(ErrorResponse.of(
+                        401,
+                        "Unauthorized",
+                        "Invalid email or password",
+                        request.getRequestURI()
+                ));
+    }
+
+    /*
+     * 503 Service Unavailable
+     * Thrown when: the password hashing pool is saturated (login/register burst)
+     * Clients are told to back off briefly instead of waiting on a stuck thread
+     */
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<ErrorResponse> handleServiceUnavailable(
+            ServiceUnavailableException ex,
+            HttpServletRequest request) {
+
+        log.warn("Service unavailable at {}: {}", request.getRequestURI(), ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ErrorResponse.of(
+                        503,
+                        "Service Unavailable",
+                        ex.getMessage(),
+                        request.getRequestURI()
+                ));
+    }
+
     /*
      * 500 Internal Server Error — Catch-All
      * Thrown when: something unexpected goes wrong
@@ -0,0 +1,8 @@
+package com.chatify.backend.Exception;
+
+// Used when: a bounded resource is saturated, e.g. the password hashing pool during a login burst
+public class ServiceUnavailableException extends RuntimeException {
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,13 @@
+package com.chatify.backend.Repository;
+
+import com.chatify.backend.Entity.ArchivedMessageChange;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ArchivedMessageChangeRepository extends MongoRepository<ArchivedMessageChange, String> {
+
+    List<ArchivedMessageChange> findByRoomId(String roomId);
+}
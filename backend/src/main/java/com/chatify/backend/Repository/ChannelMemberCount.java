@@ -0,0 +1,10 @@
+package com.chatify.backend.Repository;
+
+// Projection of one public channel with its member count (see ChatRoomRepository)
+public interface ChannelMemberCount {
+
+    Long getId();
+    String getName();
+    String getDescription();
+    long getMemberCount();
+}
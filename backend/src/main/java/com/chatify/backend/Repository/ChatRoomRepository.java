@@ -2,6 +2,7 @@ package com.chatify.backend.Repository;
 
 import com.chatify.backend.Entity.ChatRoom;
 import com.chatify.backend.Enum.ChatRoomType;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -13,8 +14,26 @@ import java.util.Optional;
 @Repository
 public interface ChatRoomRepository extends JpaRepository<ChatRoom, Long> {
 
+    // Creators are fetched in the same query
+    @EntityGraph(attributePaths = "createdBy")
     List<ChatRoom> findByTypeAndActiveTrue(ChatRoomType type);
 
+    // Every active room of a type with its member count, in a single grouped query
+    @Query("""
+        SELECT cr.id AS id, cr.name AS name, cr.description AS description,
+               COUNT(rm.id) AS memberCount
+        FROM ChatRoom cr
+        LEFT JOIN RoomMember rm ON rm.room = cr
+        WHERE cr.type = :roomType
+        AND cr.active = true
+        GROUP BY cr.id, cr.name, cr.description
+    """)
+    List<ChannelMemberCount> findMemberCountsByType(@Param("roomType") ChatRoomType roomType);
+
+    // Constant-time DM lookup through the unique canonical pair key
+    Optional<ChatRoom> findByDmKey(String dmKey);
+
+    // Rooms created before dm_key existed are found (and backfilled) through this join
     @Query("""
         SELECT cr FROM ChatRoom cr
         JOIN RoomMember rm1 ON rm1.room = cr AND rm1.user.id = :userId1
@@ -25,4 +44,8 @@ public interface ChatRoomRepository extends JpaRepository<ChatRoom, Long> {
     Optional<ChatRoom> findExistingDm(@Param("userId1") Long userId1,
                                       @Param("userId2") Long userId2,
                                       @Param("roomType") ChatRoomType roomType);
-}
\ No newline at end of file
+
+    // Every room id, active or not — the archiver walks them one at a time
+    @Query("SELECT cr.id FROM ChatRoom cr ORDER BY cr.id")
+    List<Long> findAllIds();
+}
@@ -0,0 +1,15 @@
+package com.chatify.backend.Repository;
+
+import com.chatify.backend.Enum.MemberType;
+
+import java.time.OffsetDateTime;
+
+// Projection of one room member — only what the member list shows (see RoomMemberRepository)
+public interface MemberSummary {
+
+    Long getUserId();
+    String getUsername();
+    String getAvatarUrl();
+    MemberType getRole();
+    OffsetDateTime getJoinedAt();
+}
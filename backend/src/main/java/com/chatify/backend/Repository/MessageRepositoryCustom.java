@@ -0,0 +1,39 @@
+package com.chatify.backend.Repository;
+
+import com.chatify.backend.Entity.Message;
+import org.springframework.data.domain.Slice;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+// Queries that need MongoTemplate rather than derived query methods
+public interface MessageRepositoryCustom {
+
+    // Keyset page of a room's history, newest first, strictly older than
+    // (beforeTimestamp, beforeId). Pass nulls to start from the newest message.
+    Slice<Message> findHistoryBefore(String roomId, OffsetDateTime beforeTimestamp,
+                                     String beforeId, int limit);
+
+    // Best `limit` text matches in one room, highest score first (deleted messages excluded).
+    // Served by room_text_idx, so it never scans the collection
+    List<Message> searchInRoom(String roomId, String terms, int limit);
+
+    // Oldest `limit` live messages of a room sent before `cutoff`, oldest first
+    List<Message> findOldestBefore(String roomId, OffsetDateTime cutoff, int limit);
+
+    // Deletes the given messages unless they were edited or soft-deleted since
+    // they were read; returns how many went
+    long deleteUnchanged(List<Message> archived);
+
+    // Ids of up to `limit` soft-deleted messages deleted before `deletedBefore`, oldest deletion first
+    List<String> findPurgeableIds(OffsetDateTime deletedBefore, int limit);
+
+    // Hard-deletes the given messages if they are still soft-deleted; returns how many went
+    long purgeByIds(List<String> ids);
+
+    // Stamps deletedAt on soft-deleted messages from before the field existed
+    long backfillDeletedAt(OffsetDateTime deletedAt);
+
+    // Live messages in (after, upTo] not sent by `readerId` and not system messages
+    long countUnread(String roomId, OffsetDateTime after, OffsetDateTime upTo, String readerId);
+}
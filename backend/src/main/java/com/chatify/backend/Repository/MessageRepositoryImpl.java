@@ -0,0 +1,123 @@
+package com.chatify.backend.Repository;
+
+import com.chatify.backend.Entity.Message;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MessageRepositoryImpl implements MessageRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public Slice<Message> findHistoryBefore(String roomId, OffsetDateTime beforeTimestamp,
+                                            String beforeId, int limit) {
+        Criteria criteria = Criteria.where("roomId").is(roomId).and("isDeleted").is(false);
+
+        // (timestamp, id) < (beforeTimestamp, beforeId) — walks the index, no skip
+        if (beforeTimestamp != null && beforeId != null) {
+            criteria = criteria.orOperator(
+                    Criteria.where("timestamp").lt(beforeTimestamp),
+                    Criteria.where("timestamp").is(beforeTimestamp).and("id").lt(beforeId));
+        }
+
+        // Fetch one extra row to know whether there is an older page
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "timestamp", "id"))
+                .limit(limit + 1);
+
+        List<Message> messages = mongoTemplate.find(query, Message.class);
+        boolean hasNext = messages.size() > limit;
+        if (hasNext) {
+            messages = messages.subList(0, limit);
+        }
+        return new SliceImpl<>(messages, PageRequest.of(0, limit), hasNext);
+    }
+
+    @Override
+    public List<Message> searchInRoom(String roomId, String terms, int limit) {
+        Query query = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(terms))
+                .sortByScore()
+                .addCriteria(Criteria.where("roomId").is(roomId).and("isDeleted").is(false))
+                .limit(limit);
+        return mongoTemplate.find(query, Message.class);
+    }
+
+    @Override
+    public List<Message> findOldestBefore(String roomId, OffsetDateTime cutoff, int limit) {
+        Query query = Query.query(Criteria.where("roomId").is(roomId).and("isDeleted").is(false)
+                        .and("timestamp").lt(cutoff))
+                .with(Sort.by(Sort.Direction.ASC, "timestamp", "id"))
+                .limit(limit);
+        return mongoTemplate.find(query, Message.class);
+    }
+
+    @Override
+    public long deleteUnchanged(List<Message> archived) {
+        // Each message must still be live and carry the edit it was read with
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Message.class);
+        List<String> neverEdited = new ArrayList<>();
+        for (Message message : archived) {
+            if (message.getEditedAt() == null) {
+                neverEdited.add(message.getId());
+            } else {
+                bulk.remove(Query.query(Criteria.where("id").is(message.getId())
+                        .and("isDeleted").is(false)
+                        .and("editedAt").is(message.getEditedAt())));
+            }
+        }
+        if (!neverEdited.isEmpty()) {
+            bulk.remove(Query.query(Criteria.where("id").in(neverEdited)
+                    .and("isDeleted").is(false)
+                    .and("editedAt").is(null)));
+        }
+        return archived.isEmpty() ? 0 : bulk.execute().getDeletedCount();
+    }
+
+    @Override
+    public List<String> findPurgeableIds(OffsetDateTime deletedBefore, int limit) {
+        Query query = Query.query(Criteria.where("deletedAt").lt(deletedBefore))
+                .with(Sort.by(Sort.Direction.ASC, "deletedAt"))
+                .limit(limit);
+        query.fields().include("id");
+        return mongoTemplate.find(query, Message.class).stream()
+                .map(Message::getId)
+                .toList();
+    }
+
+    @Override
+    public long purgeByIds(List<String> ids) {
+        // isDeleted guards against a message restored between the find and the delete
+        Query query = Query.query(Criteria.where("id").in(ids).and("isDeleted").is(true));
+        return mongoTemplate.remove(query, Message.class).getDeletedCount();
+    }
+
+    @Override
+    public long backfillDeletedAt(OffsetDateTime deletedAt) {
+        Query query = Query.query(Criteria.where("isDeleted").is(true).and("deletedAt").exists(false));
+        return mongoTemplate.updateMulti(query, new Update().set("deletedAt", deletedAt), Message.class)
+                .getModifiedCount();
+    }
+
+    @Override
+    public long countUnread(String roomId, OffsetDateTime after, OffsetDateTime upTo, String readerId) {
+        Query query = Query.query(Criteria.where("roomId").is(roomId).and("isDeleted").is(false)
+                .and("timestamp").gt(after).lte(upTo)
+                .and("senderId").nin(readerId, "SYSTEM"));
+        return mongoTemplate.count(query, Message.class);
+    }
+}
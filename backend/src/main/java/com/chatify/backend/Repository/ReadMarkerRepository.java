@@ -0,0 +1,14 @@
+package com.chatify.backend.Repository;
+
+import com.chatify.backend.Entity.ReadMarker;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ReadMarkerRepository extends MongoRepository<ReadMarker, String> {
+
+    // All read markers of a user (one per room they have read)
+    List<ReadMarker> findByUserId(Long userId);
+}
@@ -0,0 +1,9 @@
+package com.chatify.backend.Repository;
+
+import com.chatify.backend.Entity.ReadReceipts;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReadReceiptsRepository extends MongoRepository<ReadReceipts, String> {
+}
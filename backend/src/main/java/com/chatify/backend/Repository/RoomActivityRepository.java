@@ -0,0 +1,9 @@
+package com.chatify.backend.Repository;
+
+import com.chatify.backend.Entity.RoomActivity;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RoomActivityRepository extends MongoRepository<RoomActivity, String> {
+}
@@ -3,11 +3,14 @@ package com.chatify.backend.Repository;
 import com.chatify.backend.Entity.ChatRoom;
 import com.chatify.backend.Entity.RoomMember;
 import com.chatify.backend.Entity.User;
+import com.chatify.backend.Enum.ChatRoomType;
 import com.chatify.backend.Enum.MemberType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 @Repository
 public interface RoomMemberRepository extends JpaRepository<RoomMember,Long> {
@@ -18,6 +21,53 @@ public interface RoomMemberRepository extends JpaRepository<RoomMember,Long> {
 
     List<RoomMember> findByUserId(Long userId);
 
+    // Only the room ids a user belongs to (no entity loading)
+    @Query("SELECT rm.room.id FROM RoomMember rm WHERE rm.user.id = :userId")
+    List<Long> findRoomIdsByUserId(@Param("userId") Long userId);
+
+    // Memberships of several users at once (re-reading open sessions)
+    @Query("SELECT rm.user.id AS userId, rm.room.id AS roomId FROM RoomMember rm WHERE rm.user.id IN :userIds")
+    List<UserRoom> findRoomIdsByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    // Only the user ids of a room's members (no entity loading)
+    @Query("SELECT rm.user.id FROM RoomMember rm WHERE rm.room.id = :roomId")
+    List<Long> findUserIdsByRoomId(@Param("roomId") Long roomId);
+
+    // One page of a room's members after the given user id (keyset pagination),
+    // selecting only the columns the member list shows. Filtered and ordered
+    // on rm.user.id, the room_member column, so the (room_id, user_id) index
+    // serves the seek and the order without a sort
+    @Query("""
+        SELECT u.id AS userId, u.username AS username, u.avatarUrl AS avatarUrl,
+               rm.type AS role, rm.joinedAt AS joinedAt
+        FROM RoomMember rm
+        JOIN rm.user u
+        WHERE rm.room.id = :roomId
+        AND rm.user.id > :afterUserId
+        ORDER BY rm.user.id
+    """)
+    List<MemberSummary> findMemberPage(@Param("roomId") Long roomId,
+                                       @Param("afterUserId") Long afterUserId,
+                                       Pageable pageable);
+
+    // Member count without loading the members
+    long countByRoomId(Long roomId);
+
+    // The user's active rooms for the sidebar, with the other participant's
+    // name for DMs, in one query and without loading any entity
+    @Query("""
+        SELECT cr.id AS id, cr.name AS name, cr.type AS type, cr.avatarUrl AS avatarUrl,
+               peer.username AS peerName
+        FROM RoomMember rm
+        JOIN rm.room cr
+        LEFT JOIN RoomMember prm ON prm.room = cr AND cr.type = :dmType AND prm.user.id <> :userId
+        LEFT JOIN prm.user peer
+        WHERE rm.user.id = :userId
+        AND cr.active = true
+    """)
+    List<SidebarRoom> findSidebarRooms(@Param("userId") Long userId,
+                                       @Param("dmType") ChatRoomType dmType);
+
     // Check if a user is already a member of a room
     boolean existsByRoomIdAndUserId(String roomId, Long userId);
 
@@ -0,0 +1,15 @@
+package com.chatify.backend.Repository;
+
+import com.chatify.backend.Enum.ChatRoomType;
+
+// Projection of one of a user's rooms for the sidebar (see RoomMemberRepository)
+public interface SidebarRoom {
+
+    Long getId();
+    String getName();
+    ChatRoomType getType();
+    String getAvatarUrl();
+
+    // The other participant of a DM, null for groups and channels
+    String getPeerName();
+}
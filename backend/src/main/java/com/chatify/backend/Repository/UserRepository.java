@@ -1,6 +1,8 @@
 package com.chatify.backend.Repository;
 
+import com.chatify.backend.DTO.UserResponse;
 import com.chatify.backend.Entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -13,12 +15,32 @@ import java.util.Optional;
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
+
+    // Only the id, for principals built without the id claim
+    @Query("SELECT u.id FROM User u WHERE u.email = :email")
+    Optional<Long> findIdByEmail(@Param("email") String email);
     Optional<User> findByUsername(String username);
     boolean existsByEmail(String email);
     boolean existsByUsername(String username);
 
+    // One keyset page of active users after the given id, mapped straight to the DTO
+    @Query("""
+        SELECT new com.chatify.backend.DTO.UserResponse(u.id, u.username, u.email, u.avatarUrl, u.createdAt)
+        FROM User u
+        WHERE u.active = true
+        AND u.id > :afterId
+        ORDER BY u.id
+    """)
+    List<UserResponse> findActivePage(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Ids of deactivated users (seeds the token revocation list)
+    @Query("SELECT u.id FROM User u WHERE u.active = false")
+    List<Long> findIdsByActiveFalse();
+
+    // Full scan (LIKE '%x%'); only used until UsernameSearchIndex has loaded
     @Query("SELECT u FROM User u WHERE u.username LIKE %:username% " +
-            "AND u.username != :excludeUsername AND u.active = true")
+            "AND u.email != :excludeEmail AND u.active = true")
     List<User> searchByUsername(@Param("username") String username,
-                                @Param("excludeUsername") String excludeUsername);
+                                @Param("excludeEmail") String excludeEmail,
+                                Pageable pageable);
 }
\ No newline at end of file
@@ -0,0 +1,8 @@
+package com.chatify.backend.Repository;
+
+// Projection of one (user, room) membership (see RoomMemberRepository)
+public interface UserRoom {
+
+    Long getUserId();
+    Long getRoomId();
+}
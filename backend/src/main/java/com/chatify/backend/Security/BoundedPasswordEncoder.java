@@ -0,0 +1,142 @@
+package com.chatify.backend.Security;
+
+import com.chatify.backend.Exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/*
+ * BCrypt on its own small pool instead of on Tomcat request threads.
+ * The pool is sized to the CPU count and its queue is bounded: when a login
+ * burst fills it, callers get an immediate 503 rather than every request
+ * thread ending up stuck behind password hashes.
+ */
+@Component
+@Slf4j
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${chatify.auth.hash.threads:0}")
+    private int threads;
+
+    @Value("${chatify.auth.hash.queue-capacity:64}")
+    private int queueCapacity;
+
+    // Upper bound on how long a request thread waits for its hash
+    @Value("${chatify.auth.hash.max-wait-ms:2000}")
+    private long maxWaitMs;
+
+    private final PasswordEncoder delegate = new BCryptPasswordEncoder();
+
+    private ThreadPoolExecutor executor;
+    private Timer encodeTimer;
+    private Timer matchesTimer;
+    private Timer queueWait;
+    private Counter rejected;
+
+    @PostConstruct
+    public void start() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                task -> {
+                    Thread thread = new Thread(task, "password-hash-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        encodeTimer = Timer.builder("chatify.auth.hash.latency")
+                .description("Time spent hashing or checking a password")
+                .tag("operation", "encode")
+                .register(meterRegistry);
+        matchesTimer = Timer.builder("chatify.auth.hash.latency")
+                .description("Time spent hashing or checking a password")
+                .tag("operation", "matches")
+                .register(meterRegistry);
+        queueWait = Timer.builder("chatify.auth.hash.queue.wait")
+                .description("Time a hash request waited for a free hashing thread")
+                .register(meterRegistry);
+        rejected = Counter.builder("chatify.auth.hash.rejected")
+                .description("Hash requests turned away because the pool was saturated")
+                .register(meterRegistry);
+        Gauge.builder("chatify.auth.hash.queued", executor, pool -> pool.getQueue().size())
+                .description("Hash requests waiting for a thread")
+                .register(meterRegistry);
+
+        log.info("Password hashing pool started with {} threads and a queue of {}", poolSize, queueCapacity);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(encodeTimer, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(matchesTimer, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T run(Timer latency, Supplier<T> hash) {
+        long enqueuedAt = System.nanoTime();
+        Future<T> result;
+        try {
+            result = executor.submit(() -> {
+                queueWait.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                return latency.record(hash);
+            });
+        } catch (RejectedExecutionException e) {
+            throw saturated();
+        }
+
+        try {
+            return result.get(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(false);   // still queued: drop it so the pool does not do dead work
+            throw saturated();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw saturated();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private ServiceUnavailableException saturated() {
+        rejected.increment();
+        return new ServiceUnavailableException("Too many sign-in attempts right now, please retry shortly");
+    }
+}
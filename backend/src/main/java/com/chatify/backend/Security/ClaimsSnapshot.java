@@ -0,0 +1,130 @@
+package com.chatify.backend.Security;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Read-only view of verified claims, safe to hand to every request that
+ * presents the same token. Collection values are copied once up front;
+ * dates are copied on every read; all mutators throw.
+ */
+final class ClaimsSnapshot extends AbstractMap<String, Object> implements Claims {
+
+    private final Claims parsed;
+    private final Map<String, Object> values;
+
+    ClaimsSnapshot(Claims parsed) {
+        Map<String, Object> copy = new LinkedHashMap<>();
+        parsed.forEach((name, value) -> {
+            Object frozen = freeze(value);
+            copy.put(name, frozen);
+            if (frozen != value) parsed.put(name, frozen);
+        });
+        this.parsed = parsed;
+        this.values = Collections.unmodifiableMap(copy);
+    }
+
+    private static Object freeze(Object value) {
+        if (value instanceof List<?> list) return Collections.unmodifiableList(list);
+        if (value instanceof Map<?, ?> map) return Collections.unmodifiableMap(map);
+        if (value instanceof Set<?> set) return Collections.unmodifiableSet(set);
+        return value;
+    }
+
+    private static Date copy(Date date) {
+        return date == null ? null : new Date(date.getTime());
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return values.entrySet();
+    }
+
+    @Override
+    public Object get(Object key) {
+        return values.get(key);
+    }
+
+    @Override
+    public <T> T get(String claimName, Class<T> requiredType) {
+        T value = parsed.get(claimName, requiredType);
+        return value instanceof Date date ? requiredType.cast(copy(date)) : value;
+    }
+
+    @Override
+    public String getIssuer() {
+        return parsed.getIssuer();
+    }
+
+    @Override
+    public String getSubject() {
+        return parsed.getSubject();
+    }
+
+    @Override
+    public String getAudience() {
+        return parsed.getAudience();
+    }
+
+    @Override
+    public Date getExpiration() {
+        return copy(parsed.getExpiration());
+    }
+
+    @Override
+    public Date getNotBefore() {
+        return copy(parsed.getNotBefore());
+    }
+
+    @Override
+    public Date getIssuedAt() {
+        return copy(parsed.getIssuedAt());
+    }
+
+    @Override
+    public String getId() {
+        return parsed.getId();
+    }
+
+    @Override
+    public Claims setIssuer(String iss) {
+        throw new UnsupportedOperationException("Verified claims are read-only");
+    }
+
+    @Override
+    public Claims setSubject(String sub) {
+        throw new UnsupportedOperationException("Verified claims are read-only");
+    }
+
+    @Override
+    public Claims setAudience(String aud) {
+        throw new UnsupportedOperationException("Verified claims are read-only");
+    }
+
+    @Override
+    public Claims setExpiration(Date exp) {
+        throw new UnsupportedOperationException("Verified claims are read-only");
+    }
+
+    @Override
+    public Claims setNotBefore(Date nbf) {
+        throw new UnsupportedOperationException("Verified claims are read-only");
+    }
+
+    @Override
+    public Claims setIssuedAt(Date iat) {
+        throw new UnsupportedOperationException("Verified claims are read-only");
+    }
+
+    @Override
+    public Claims setId(String jti) {
+        throw new UnsupportedOperationException("Verified claims are read-only");
+    }
+}
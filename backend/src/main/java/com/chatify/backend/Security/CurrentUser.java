@@ -0,0 +1,39 @@
+package com.chatify.backend.Security;
+
+import com.chatify.backend.Entity.User;
+import com.chatify.backend.Exception.ResourceNotFoundException;
+import com.chatify.backend.Repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+/*
+ * Resolves the caller of a request from its principal.
+ * A JwtUserPrincipal already carries the user id, so most endpoints need no
+ * query at all; only principals built without the claims (older tokens, or
+ * jwt.stateless-principal=false) are looked up by email.
+ */
+@Component
+public class CurrentUser {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    public Long id(UserDetails userDetails) {
+        if (userDetails instanceof JwtUserPrincipal principal) {
+            return principal.getId();
+        }
+        return userRepository.findIdByEmail(userDetails.getUsername())
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    }
+
+    // For the endpoints that really need the whole entity
+    public User load(UserDetails userDetails) {
+        if (userDetails instanceof JwtUserPrincipal principal) {
+            return userRepository.findById(principal.getId())
+                    .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        }
+        return userRepository.findByEmail(userDetails.getUsername())
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    }
+}
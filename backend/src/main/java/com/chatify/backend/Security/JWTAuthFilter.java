@@ -1,5 +1,6 @@
 package com.chatify.backend.Security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -7,6 +8,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -28,6 +30,12 @@ public class JWTAuthFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private TokenRevocationService revocationService;
+
+    @Value("${jwt.stateless-principal:true}")
+    private boolean statelessPrincipal;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
@@ -45,21 +53,24 @@ public class JWTAuthFilter extends OncePerRequestFilter {
         String token = authHeader.substring(7);
 
         try {
-            String email = jwtUtil.extractUsername(token);
-
-            if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(email);
-
-                if (jwtUtil.isTokenValid(token, email)) {
-                    UsernamePasswordAuthenticationToken authToken =
-                            new UsernamePasswordAuthenticationToken(
-                                    userDetails,
-                                    null,
-                                    userDetails.getAuthorities()
-                            );
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
+            // One parse + signature check (usually served from the JwtUtil cache)
+            Claims claims = jwtUtil.validateToken(token);
+
+            if (claims != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                UserDetails userDetails = resolvePrincipal(claims);
+                if (userDetails == null) {
+                    filterChain.doFilter(request, response);
+                    return;
                 }
+
+                UsernamePasswordAuthenticationToken authToken =
+                        new UsernamePasswordAuthenticationToken(
+                                userDetails,
+                                null,
+                                userDetails.getAuthorities()
+                        );
+                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authToken);
             }
         } catch (Exception e) {
             // This prevents the SignatureException from crashing the registration flow
@@ -69,4 +80,19 @@ public class JWTAuthFilter extends OncePerRequestFilter {
         // Final call to ensure the request continues regardless of JWT status
         filterChain.doFilter(request, response);
     }
+
+    // Stateless mode builds the principal from the token itself; the database
+    // is only consulted for old tokens that lack the id/role claims
+    private UserDetails resolvePrincipal(Claims claims) {
+        if (statelessPrincipal) {
+            JwtUserPrincipal principal = JwtUserPrincipal.fromClaims(claims);
+            if (principal != null) {
+                return revocationService.isRevoked(principal.getId(), claims.getIssuedAt())
+                        ? null
+                        : principal;
+            }
+        }
+        UserDetails userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+        return userDetails.isEnabled() ? userDetails : null;
+    }
 }
\ No newline at end of file
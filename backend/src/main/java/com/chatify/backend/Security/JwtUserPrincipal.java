@@ -0,0 +1,54 @@
+package com.chatify.backend.Security;
+
+import io.jsonwebtoken.Claims;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+// Principal built straight from verified token claims — no database lookup
+@Getter
+public class JwtUserPrincipal implements UserDetails {
+
+    private final Long id;
+    private final String email;
+    private final List<GrantedAuthority> authorities;
+
+    public JwtUserPrincipal(Long id, String email, List<GrantedAuthority> authorities) {
+        this.id = id;
+        this.email = email;
+        this.authorities = authorities;
+    }
+
+    // Returns null for tokens issued before the id/role claims existed
+    public static JwtUserPrincipal fromClaims(Claims claims) {
+        Long id = claims.get(JwtUtil.USER_ID_CLAIM, Long.class);
+        List<?> roles = claims.get(JwtUtil.ROLES_CLAIM, List.class);
+        if (id == null || roles == null) {
+            return null;
+        }
+        List<GrantedAuthority> authorities = roles.stream()
+                .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(String.valueOf(role)))
+                .toList();
+        return new JwtUserPrincipal(id, claims.getSubject(), authorities);
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    // Spring's "username" is the email everywhere in this app
+    @Override
+    public String getUsername() {
+        return email;
+    }
+}
@@ -1,12 +1,21 @@
 package com.chatify.backend.Security;
 
+import com.chatify.backend.Entity.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class JwtUtil {
@@ -14,12 +23,34 @@ public class JwtUtil {
     @Value("${jwt.secret}")
     private String secret;
 
-    private static final long EXPIRATION_TIME = 86400000; // 24 hours in ms
+    // Verified tokens are remembered so a token replayed many times per
+    // second is parsed and HMAC-checked only once
+    @Value("${jwt.cache.max-entries:10000}")
+    private int cacheMaxEntries;
+
+    @Value("${jwt.cache.ttl-ms:300000}")
+    private long cacheTtlMs;
+
+    public static final long EXPIRATION_TIME = 86400000; // 24 hours in ms
+
+    // Extra claims so a principal can be built without loading the user
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLES_CLAIM = "roles";
+    public static final String USERNAME_CLAIM = "name";
+
+    private record CachedClaims(Claims claims, long expiresAt) {}
+
+    // SHA-256 of token -> read-only verified claims; lock-free reads, expired
+    // entries dropped when read or when the cache is full
+    private final ConcurrentHashMap<String, CachedClaims> cache = new ConcurrentHashMap<>();
 
     // Generate token on login
-    public String generateToken(String email) {
+    public String generateToken(User user) {
         return Jwts.builder()
-                .setSubject(email)
+                .setSubject(user.getEmail())
+                .claim(USER_ID_CLAIM, user.getId())
+                .claim(ROLES_CLAIM, List.of("ROLE_USER"))
+                .claim(USERNAME_CLAIM, user.getUsername())
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis()
                         + EXPIRATION_TIME))
@@ -27,6 +58,15 @@ public class JwtUtil {
                 .compact();
     }
 
+    // Parse and verify a token once: its claims, or null if it is invalid or expired
+    public Claims validateToken(String token) {
+        try {
+            return getClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     // Extract username from token
     public String extractUsername(String token) {
         return getClaims(token).getSubject();
@@ -34,18 +74,58 @@ public class JwtUtil {
 
     // Check if token is valid and not expired
     public boolean isTokenValid(String token, String username) {
-        return extractUsername(token).equals(username)
-                && !isTokenExpired(token);
-    }
-
-    private boolean isTokenExpired(String token) {
-        return getClaims(token).getExpiration().before(new Date());
+        Claims claims = validateToken(token);
+        return claims != null && claims.getSubject().equals(username);
     }
 
+    // Throws JwtException if the signature is wrong or the token has expired
     private Claims getClaims(String token) {
-        return Jwts.parser()
+        String key = hash(token);
+        long now = System.currentTimeMillis();
+
+        CachedClaims cached = cache.get(key);
+        if (cached != null) {
+            if (cached.expiresAt() > now) {
+                return cached.claims();
+            }
+            cache.remove(key, cached);
+        }
+
+        Claims claims = new ClaimsSnapshot(Jwts.parser()
                 .setSigningKey(secret)
                 .parseClaimsJws(token)
-                .getBody();
+                .getBody());
+
+        // Never keep an entry past the token's own expiry
+        long expiresAt = now + cacheTtlMs;
+        if (claims.getExpiration() != null) {
+            expiresAt = Math.min(expiresAt, claims.getExpiration().getTime());
+        }
+        if (cache.size() >= cacheMaxEntries) {
+            evict(now);
+        }
+        cache.put(key, new CachedClaims(claims, expiresAt));
+        return claims;
+    }
+
+    // Expired entries first; if that is not enough, arbitrary ones down to 90%
+    private void evict(long now) {
+        cache.values().removeIf(entry -> entry.expiresAt() <= now);
+        Iterator<CachedClaims> it = cache.values().iterator();
+        int target = cacheMaxEntries - cacheMaxEntries / 10 - 1;
+        while (cache.size() > target && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 }
@@ -0,0 +1,143 @@
+package com.chatify.backend.Security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Token buckets for client SEND frames, one per user and one per room.
+ * Each bucket is a single AtomicLong holding its theoretical arrival time
+ * (GCRA): a frame is admitted while that time is no more than `burst`
+ * intervals ahead of now, and admitting it pushes the time one interval
+ * further. Admission is a CAS loop, so there are no locks on the send path.
+ * A bucket whose arrival time lies in the past is full, so idle buckets can
+ * be dropped without changing any outcome.
+ */
+@Component
+public class SendRateLimiter {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${chatify.ratelimit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chatify.ratelimit.user.per-second:5}")
+    private double userPerSecond;
+
+    @Value("${chatify.ratelimit.user.burst:20}")
+    private int userBurst;
+
+    @Value("${chatify.ratelimit.room.per-second:50}")
+    private double roomPerSecond;
+
+    @Value("${chatify.ratelimit.room.burst:100}")
+    private int roomBurst;
+
+    @Value("${chatify.ratelimit.idle-evict-ms:60000}")
+    private long idleEvictMs;
+
+    private final ConcurrentHashMap<Long, Bucket> users = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Bucket> rooms = new ConcurrentHashMap<>();
+
+    private Limit userLimit;
+    private Limit roomLimit;
+    private Counter userRejected;
+    private Counter roomRejected;
+
+    public enum Verdict { ALLOWED, USER_LIMITED, ROOM_LIMITED }
+
+    private record Limit(long intervalNanos, long toleranceNanos) {
+        static Limit of(double perSecond, int burst) {
+            long interval = (long) (TimeUnit.SECONDS.toNanos(1) / perSecond);
+            return new Limit(interval, interval * Math.max(0, burst - 1));
+        }
+    }
+
+    private static final class Bucket {
+
+        private final AtomicLong arrival = new AtomicLong(Long.MIN_VALUE);
+
+        boolean tryAcquire(Limit limit, long now) {
+            while (true) {
+                long current = arrival.get();
+                long start = Math.max(current, now);
+                if (start - now > limit.toleranceNanos()) return false;
+                if (arrival.compareAndSet(current, start + limit.intervalNanos())) return true;
+            }
+        }
+
+        // Gives back one admitted frame. If tryAcquire started from a past arrival
+        // time, this leaves it at now rather than there, which is just as full
+        void refund(Limit limit) {
+            arrival.addAndGet(-limit.intervalNanos());
+        }
+
+        boolean idleSince(long cutoff) {
+            return arrival.get() < cutoff;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        userLimit = Limit.of(userPerSecond, userBurst);
+        roomLimit = Limit.of(roomPerSecond, roomBurst);
+        userRejected = rejectedCounter("user");
+        roomRejected = rejectedCounter("room");
+        meterRegistry.gaugeMapSize("chatify.ratelimit.buckets", List.of(Tag.of("scope", "user")), users);
+        meterRegistry.gaugeMapSize("chatify.ratelimit.buckets", List.of(Tag.of("scope", "room")), rooms);
+    }
+
+    private Counter rejectedCounter(String scope) {
+        return Counter.builder("chatify.ratelimit.rejected")
+                .description("SEND frames dropped by the rate limiter")
+                .tag("scope", scope)
+                .register(meterRegistry);
+    }
+
+    // The user's bucket is checked first, so one flooding client runs dry
+    // before it can use up the room's shared budget. A frame the room rejects
+    // was not sent, so the user's token is handed back
+    public Verdict tryAcquire(Long userId, String roomId) {
+        if (!enabled) return Verdict.ALLOWED;
+        long now = System.nanoTime();
+
+        Bucket user = users.computeIfAbsent(userId, id -> new Bucket());
+        if (!user.tryAcquire(userLimit, now)) {
+            userRejected.increment();
+            return Verdict.USER_LIMITED;
+        }
+        if (!rooms.computeIfAbsent(roomId, id -> new Bucket()).tryAcquire(roomLimit, now)) {
+            user.refund(userLimit);
+            roomRejected.increment();
+            return Verdict.ROOM_LIMITED;
+        }
+        return Verdict.ALLOWED;
+    }
+
+    // Roughly how long until the user's next frame would be admitted
+    public long retryAfterMs(Verdict verdict, Long userId, String roomId) {
+        Bucket bucket = verdict == Verdict.ROOM_LIMITED ? rooms.get(roomId) : users.get(userId);
+        Limit limit = verdict == Verdict.ROOM_LIMITED ? roomLimit : userLimit;
+        if (bucket == null) return 0;
+        long wait = bucket.arrival.get() - limit.toleranceNanos() - System.nanoTime();
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(wait) + 1);
+    }
+
+    @Scheduled(fixedDelayString = "${chatify.ratelimit.idle-evict-ms:60000}")
+    public void evictIdle() {
+        long cutoff = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(idleEvictMs);
+        users.values().removeIf(bucket -> bucket.idleSince(cutoff));
+        rooms.values().removeIf(bucket -> bucket.idleSince(cutoff));
+    }
+}
@@ -0,0 +1,218 @@
+package com.chatify.backend.Security;
+
+import com.chatify.backend.DTO.ErrorResponse;
+import com.chatify.backend.Repository.UserRepository;
+import com.chatify.backend.Service.PresenceService;
+import com.chatify.backend.Service.SessionIdentity;
+import com.chatify.backend.Service.SessionMembershipCache;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/*
+ * The single interceptor on the client inbound channel.
+ *   CONNECT            -> verify the token once, resolve the session identity
+ *                         and keep it on the session attributes
+ *   SUBSCRIBE / SEND   -> room and user destination ACLs, answered from that
+ *                         identity without touching the database
+ *   SEND to a room     -> per-user and per-room rate limits
+ * A frame that fails an ACL or a limit is dropped and the sender told on
+ * /user/queue/errors; the connection, and every other room on it, stays up.
+ */
+@Component
+public class StompInboundInterceptor implements ChannelInterceptor {
+
+    public static final String SESSION_IDENTITY = "chatify.identity";
+
+    private static final String ROOM_TOPIC = "/topic/room/";
+    private static final String USER_TOPIC = "/topic/user/";
+    private static final String ROOM_SEND = "/app/chat/";
+    private static final String TYPING_SUFFIX = "/typing";
+    private static final String ERRORS_QUEUE = "/queue/errors";
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TokenRevocationService revocationService;
+
+    @Autowired
+    private SessionMembershipCache sessionMembershipCache;
+
+    @Autowired
+    private PresenceService presenceService;
+
+    @Autowired
+    private SendRateLimiter sendRateLimiter;
+
+    // Lazy: the broker configuration that builds the template depends on this interceptor
+    @Autowired
+    @Lazy
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Value("${jwt.stateless-principal:true}")
+    private boolean statelessPrincipal;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor
+                .getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null) return message;
+
+        // Every frame, heartbeats included, keeps the session's presence fresh
+        presenceService.touch(accessor.getSessionId());
+        if (accessor.getCommand() == null) return message;
+
+        switch (accessor.getCommand()) {
+            case CONNECT -> authenticate(accessor);
+            case SUBSCRIBE -> {
+                if (!authorize(accessor)) return null;   // Never registered with the broker
+            }
+            case SEND -> {
+                // Dropped before it reaches the controller
+                if (!authorize(accessor) || !admit(accessor)) return null;
+            }
+            default -> { }
+        }
+        return message;
+    }
+
+    private void authenticate(StompHeaderAccessor accessor) {
+        String authHeader = accessor.getFirstNativeHeader("Authorization");
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            throw new MessageDeliveryException("Missing or invalid Authorization header");
+        }
+
+        Claims claims = jwtUtil.validateToken(authHeader.substring(7));
+        if (claims == null) {
+            throw new MessageDeliveryException("Invalid or expired token");
+        }
+
+        SessionIdentity identity = resolveIdentity(accessor.getSessionId(), claims);
+        UserDetails userDetails = identity.getPrincipal();
+
+        // Set the user in the accessor so accessor.getUser() works later
+        accessor.setUser(new UsernamePasswordAuthenticationToken(
+                userDetails, null, userDetails.getAuthorities()));
+
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        if (attributes != null) {
+            attributes.put(SESSION_IDENTITY, identity);
+        }
+    }
+
+    // Current tokens carry everything but the room list; older ones need the user row
+    private SessionIdentity resolveIdentity(String sessionId, Claims claims) {
+        JwtUserPrincipal principal = statelessPrincipal ? JwtUserPrincipal.fromClaims(claims) : null;
+        String username = claims.get(JwtUtil.USERNAME_CLAIM, String.class);
+
+        if (principal != null && username != null) {
+            if (revocationService.isRevoked(principal.getId(), claims.getIssuedAt())) {
+                throw new MessageDeliveryException("Account is deactivated");
+            }
+            return sessionMembershipCache.register(sessionId, principal, username);
+        }
+
+        UserDetails userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+        if (!userDetails.isEnabled()) {
+            throw new MessageDeliveryException("Account is deactivated");
+        }
+        return userRepository.findByEmail(claims.getSubject())
+                .map(user -> sessionMembershipCache.register(sessionId, user, userDetails))
+                .orElseThrow(() -> new MessageDeliveryException("User not found"));
+    }
+
+    // False when the frame is denied; the sender has been told why
+    private boolean authorize(StompHeaderAccessor accessor) {
+        String destination = accessor.getDestination();
+        if (destination == null) return true;
+
+        boolean roomDestination = destination.startsWith(ROOM_TOPIC) || destination.startsWith(ROOM_SEND);
+        boolean userDestination = destination.startsWith(USER_TOPIC);
+        if (!roomDestination && !userDestination) return true;
+
+        // No identity means no authenticated CONNECT: nobody to answer, close it
+        SessionIdentity identity = identityOf(accessor);
+        if (identity == null) {
+            throw new MessageDeliveryException("Not authenticated");
+        }
+
+        String denied = null;
+        if (roomDestination) {
+            String prefix = destination.startsWith(ROOM_TOPIC) ? ROOM_TOPIC : ROOM_SEND;
+            if (!identity.isMemberOf(segmentAfter(destination, prefix))) {
+                denied = "Not a member of this room";
+            }
+        } else if (!String.valueOf(identity.getUserId()).equals(segmentAfter(destination, USER_TOPIC))) {
+            denied = "Cannot access another user's destination";
+        }
+        if (denied == null) return true;
+
+        reject(accessor, identity, ErrorResponse.of(403, "Forbidden", denied, destination));
+        return false;
+    }
+
+    // Sends, edits and deletes count against the limits; typing has its own throttle
+    private boolean admit(StompHeaderAccessor accessor) {
+        String destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith(ROOM_SEND) || destination.endsWith(TYPING_SUFFIX)) {
+            return true;
+        }
+
+        SessionIdentity identity = identityOf(accessor);
+        String roomId = segmentAfter(destination, ROOM_SEND);
+        SendRateLimiter.Verdict verdict = sendRateLimiter.tryAcquire(identity.getUserId(), roomId);
+        if (verdict == SendRateLimiter.Verdict.ALLOWED) return true;
+
+        long retryAfterMs = sendRateLimiter.retryAfterMs(verdict, identity.getUserId(), roomId);
+        String reason = verdict == SendRateLimiter.Verdict.USER_LIMITED
+                ? "You are sending too fast"
+                : "This room is receiving too many messages";
+        reject(accessor, identity, ErrorResponse.of(429, "Too Many Requests",
+                reason + ", retry in " + retryAfterMs + " ms", destination));
+        return false;
+    }
+
+    // Echoes the frame's receipt id so the client can tell which frame was dropped
+    private void reject(StompHeaderAccessor accessor, SessionIdentity identity, ErrorResponse error) {
+        String receipt = accessor.getReceipt();
+        Map<String, Object> headers = receipt == null ? Map.of() : Map.of("receipt-id", receipt);
+        String user = accessor.getUser() != null ? accessor.getUser().getName() : identity.getEmail();
+        messagingTemplate.convertAndSendToUser(user, ERRORS_QUEUE, error, headers);
+    }
+
+    private SessionIdentity identityOf(StompHeaderAccessor accessor) {
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        Object identity = attributes == null ? null : attributes.get(SESSION_IDENTITY);
+        return identity instanceof SessionIdentity found
+                ? found
+                : sessionMembershipCache.get(accessor.getSessionId());
+    }
+
+    // "/topic/room/42/edit" with prefix "/topic/room/" -> "42"
+    private static String segmentAfter(String destination, String prefix) {
+        int end = destination.indexOf('/', prefix.length());
+        return end < 0 ? destination.substring(prefix.length()) : destination.substring(prefix.length(), end);
+    }
+}
@@ -0,0 +1,91 @@
+package com.chatify.backend.Security;
+
+import com.chatify.backend.Cluster.ClusterFanout;
+import com.chatify.backend.Repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Small in-memory revocation list for stateless tokens.
+ * When a user is deactivated, every token issued to them up to that moment
+ * stops working. Entries only need to outlive the longest token lifetime.
+ * Revocations are relayed to the other nodes, and every node re-reads the
+ * inactive users periodically in case a relayed event was lost.
+ */
+@Service
+@Slf4j
+public class TokenRevocationService {
+
+    private static final String REVOKED_EVENT = "token-revoked";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ClusterFanout clusterFanout;
+
+    // userId -> revoked at (epoch ms); tokens issued at or before it are rejected
+    private final ConcurrentHashMap<Long, Long> revokedAt = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        clusterFanout.onEvent(REVOKED_EVENT, this::onRevoked);
+    }
+
+    // Users deactivated before this node started still hold valid tokens
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInactiveUsers() {
+        long now = System.currentTimeMillis();
+        userRepository.findIdsByActiveFalse().forEach(id -> revokedAt.putIfAbsent(id, now));
+        log.info("Revocation list loaded with {} inactive users", revokedAt.size());
+    }
+
+    // Catches deactivations on other nodes whose event never arrived
+    @Scheduled(initialDelayString = "${chatify.revocation.refresh-ms:60000}",
+            fixedDelayString = "${chatify.revocation.refresh-ms:60000}")
+    public void refreshInactiveUsers() {
+        long now = System.currentTimeMillis();
+        int added = 0;
+        for (Long id : userRepository.findIdsByActiveFalse()) {
+            if (revokedAt.putIfAbsent(id, now) == null) added++;
+        }
+        if (added > 0) {
+            log.info("Revocation refresh picked up {} deactivated users", added);
+        }
+    }
+
+    public void revoke(Long userId) {
+        long now = System.currentTimeMillis();
+        revokedAt.merge(userId, now, Math::max);
+        clusterFanout.publishEvent(REVOKED_EVENT, (userId + ":" + now).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // "<userId>:<revokedAt>" from the node that deactivated the user
+    private void onRevoked(byte[] payload) {
+        String event = new String(payload, StandardCharsets.UTF_8);
+        int colon = event.indexOf(':');
+        revokedAt.merge(Long.valueOf(event.substring(0, colon)),
+                Long.parseLong(event.substring(colon + 1)), Math::max);
+    }
+
+    public boolean isRevoked(Long userId, Date issuedAt) {
+        Long revoked = revokedAt.get(userId);
+        return revoked != null && (issuedAt == null || issuedAt.getTime() <= revoked);
+    }
+
+    // Every token issued before an entry has expired by now
+    @Scheduled(fixedDelay = 3_600_000)
+    public void prune() {
+        long cutoff = System.currentTimeMillis() - JwtUtil.EXPIRATION_TIME;
+        revokedAt.values().removeIf(revoked -> revoked < cutoff);
+    }
+}
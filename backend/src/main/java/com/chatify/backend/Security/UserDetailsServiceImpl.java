@@ -24,6 +24,7 @@ public class UserDetailsServiceImpl implements UserDetailsService {
                 .withUsername(user.getEmail())
                 .password(user.getPasswordHash())
                 .authorities("ROLE_USER")
+                .disabled(!user.isActive())   // deactivated users can no longer log in
                 .build();
     }
 }
\ No newline at end of file
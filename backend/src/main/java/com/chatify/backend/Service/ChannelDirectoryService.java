@@ -0,0 +1,88 @@
+package com.chatify.backend.Service;
+
+import com.chatify.backend.DTO.ChannelDirectoryEntry;
+import com.chatify.backend.Enum.ChatRoomType;
+import com.chatify.backend.Exception.BadRequestException;
+import com.chatify.backend.Repository.ChannelMemberCount;
+import com.chatify.backend.Repository.ChatRoomRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.OffsetDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Public channel directory served from memory.
+ * One grouped query yields every channel with its member count; together
+ * with the activity times it is turned into two pre-sorted lists that are
+ * swapped in as a whole every refresh. Requests only slice those lists.
+ */
+@Service
+@Slf4j
+public class ChannelDirectoryService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    @Autowired
+    private ChatRoomRepository chatRoomRepository;
+
+    @Autowired
+    private RoomActivityService roomActivityService;
+
+    private record Snapshot(List<ChannelDirectoryEntry> byMembers,
+                            List<ChannelDirectoryEntry> byActivity) {}
+
+    private volatile Snapshot snapshot = new Snapshot(List.of(), List.of());
+
+    private static final Comparator<ChannelDirectoryEntry> MOST_MEMBERS =
+            Comparator.comparingLong(ChannelDirectoryEntry::getMemberCount).reversed()
+                    .thenComparing(ChannelDirectoryEntry::getId);
+
+    private static final Comparator<ChannelDirectoryEntry> MOST_RECENT =
+            Comparator.comparing(ChannelDirectoryEntry::getLastActivityAt,
+                            Comparator.nullsLast(Comparator.<OffsetDateTime>reverseOrder()))
+                    .thenComparing(MOST_MEMBERS);
+
+    public Page<ChannelDirectoryEntry> getDirectory(int page, int size, String sort) {
+        if (page < 0 || size < 1) {
+            throw new BadRequestException("page must be >= 0 and size >= 1");
+        }
+        List<ChannelDirectoryEntry> entries = switch (sort) {
+            case "members" -> snapshot.byMembers();
+            case "activity" -> snapshot.byActivity();
+            default -> throw new BadRequestException("sort must be 'members' or 'activity'");
+        };
+
+        int pageSize = Math.min(size, MAX_PAGE_SIZE);
+        int from = (int) Math.min((long) page * pageSize, entries.size());
+        int to = Math.min(from + pageSize, entries.size());
+        return new PageImpl<>(entries.subList(from, to), PageRequest.of(page, pageSize), entries.size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${chatify.rooms.directory.refresh-interval-ms:30000}")
+    public void refresh() {
+        List<ChannelMemberCount> channels = chatRoomRepository.findMemberCountsByType(ChatRoomType.CHANNEL);
+        Map<String, OffsetDateTime> activity = roomActivityService.lastActivity(
+                channels.stream().map(channel -> String.valueOf(channel.getId())).toList());
+
+        List<ChannelDirectoryEntry> entries = channels.stream()
+                .map(channel -> ChannelDirectoryEntry.from(channel,
+                        activity.get(String.valueOf(channel.getId()))))
+                .toList();
+
+        snapshot = new Snapshot(
+                entries.stream().sorted(MOST_MEMBERS).toList(),
+                entries.stream().sorted(MOST_RECENT).toList());
+        log.debug("Channel directory refreshed with {} channels", entries.size());
+    }
+}
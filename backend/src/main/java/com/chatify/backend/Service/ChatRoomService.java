@@ -1,28 +1,57 @@
 package com.chatify.backend.Service;
 
+import com.chatify.backend.DTO.MemberPageResponse;
+import com.chatify.backend.DTO.SidebarEntry;
 import com.chatify.backend.Entity.ChatRoom;
+import com.chatify.backend.Entity.RoomActivity;
 import com.chatify.backend.Entity.RoomMember;
 import com.chatify.backend.Entity.User;
 import com.chatify.backend.Enum.ChatRoomType;
 import com.chatify.backend.Enum.MemberType;
+import com.chatify.backend.Event.RoomMembershipChangedEvent;
 import com.chatify.backend.Exception.ConflictException;
 import com.chatify.backend.Exception.ResourceNotFoundException;
 import com.chatify.backend.Exception.UnauthorizedException;
 import com.chatify.backend.Repository.ChatRoomRepository;
+import com.chatify.backend.Repository.MemberSummary;
 import com.chatify.backend.Repository.MessageRepository;
 import com.chatify.backend.Repository.RoomMemberRepository;
+import com.chatify.backend.Repository.SidebarRoom;
 import com.chatify.backend.Repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
 public class ChatRoomService {
 
+    private static final int MAX_MEMBER_PAGE = 200;
+
+    @Value("${chatify.dm.cache.max-entries:100000}")
+    private int dmCacheMaxEntries;
+
+    // DM pair key -> roomId, least recently used evicted first
+    private final Map<String, Long> dmRooms = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > dmCacheMaxEntries;
+        }
+    };
+
     @Autowired
     private ChatRoomRepository chatRoomRepository;
     @Autowired
@@ -36,6 +65,21 @@ public class ChatRoomService {
     @Autowired
     private MessageRepository messageRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private RecentMessageCache recentMessageCache;
+
+    @Autowired
+    private RoomActivityService roomActivityService;
+
+    @Autowired
+    private UnreadCounterService unreadCounterService;
+
+    @Autowired
+    private DmRoomCreator dmRoomCreator;
+
     // Create a GROUP or CHANNEL room
     @Transactional
     public ChatRoom createRoom(String name, String description, ChatRoomType type, User createdBy)
@@ -52,23 +96,77 @@ public class ChatRoomService {
     }
 
     // Create or retrieve a DM between two users
-    @Transactional
+    // Usually one primary key lookup through the pair cache; on a miss the
+    // unique dm_key settles concurrent opens on a single room.
+    // Not @Transactional: every lookup is its own short transaction and the
+    // insert runs in DmRoomCreator's, so a DM open holds one connection at a time
     public ChatRoom getOrCreateDM(User user1, User user2)
     {
-        return chatRoomRepository.findExistingDm(user1.getId(),user2.getId(),ChatRoomType.DM).orElseGet(
-                ()->{
-                    ChatRoom dm = new ChatRoom();
-                    dm.setType(ChatRoomType.DM);
-                    dm.setCreatedBy(user1);
-                    dm.setActive(true);
-
-                    ChatRoom saved = chatRoomRepository.save(dm);
-                    addMember(saved, user1,MemberType.MEMBER,user1.getUsername());
-                    addMember(saved,user2,MemberType.MEMBER,user1.getUsername());
-                    return saved;
-                }
-        );
+        String key = dmKey(user1.getId(), user2.getId());
+
+        Long cachedId;
+        synchronized (dmRooms) {
+            cachedId = dmRooms.get(key);
+        }
+        if (cachedId != null) {
+            Optional<ChatRoom> cached = chatRoomRepository.findById(cachedId).filter(ChatRoom::isActive);
+            if (cached.isPresent()) return cached.get();
+            synchronized (dmRooms) {
+                dmRooms.remove(key);
+            }
+        }
+
+        Optional<ChatRoom> existing = chatRoomRepository.findByDmKey(key)
+                .or(() -> backfillDmKey(user1, user2, key));
+        if (existing.isPresent()) {
+            ChatRoom dm = existing.get();
+            // Rooms created before members were inserted with the room can
+            // lack one; repair that before caching the pair
+            ensureDmMember(dm, user1, user1.getUsername());
+            ensureDmMember(dm, user2, user1.getUsername());
+            synchronized (dmRooms) {
+                dmRooms.put(key, dm.getId());
+            }
+            return dm;
+        }
+
+        ChatRoom dm;
+        try {
+            dm = dmRoomCreator.create(user1, user2, key);
+        } catch (DataIntegrityViolationException e) {
+            // Someone else created it first — use theirs, read outside our snapshot
+            return dmRoomCreator.findCommitted(key)
+                    .orElseThrow(() -> new ConflictException("Could not open the conversation, please retry"));
+        }
+        announceMember(dm, user1, user1.getUsername());
+        announceMember(dm, user2, user1.getUsername());
+        synchronized (dmRooms) {
+            dmRooms.put(key, dm.getId());
+        }
+        return dm;
+    }
+
+    private Optional<ChatRoom> backfillDmKey(User user1, User user2, String key)
+    {
+        return chatRoomRepository.findExistingDm(user1.getId(), user2.getId(), ChatRoomType.DM)
+                .map(dm -> {
+                    dm.setDmKey(key);
+                    return chatRoomRepository.save(dm);
+                });
     }
+
+    private void ensureDmMember(ChatRoom dm, User user, String addedBy)
+    {
+        if (!roomMemberRepository.existsByRoomIdAndUserId(String.valueOf(dm.getId()), user.getId())) {
+            addMember(dm, user, MemberType.MEMBER, addedBy);
+        }
+    }
+
+    private static String dmKey(Long userA, Long userB)
+    {
+        return Math.min(userA, userB) + ":" + Math.max(userA, userB);
+    }
+
     // Add a member to a room (with duplicate check)
     @Transactional
     public void addMember(ChatRoom room, User user, MemberType type,String adminUsername)
@@ -82,6 +180,13 @@ public class ChatRoomService {
         member.setUser(user);
         member.setType(type);
         roomMemberRepository.save(member);
+        eventPublisher.publishEvent(RoomMembershipChangedEvent.joined(room.getId(), user.getId()));
+        announceMember(room, user, adminUsername);
+    }
+
+    // "<user> was added by <admin>" as a system message in the room
+    private void announceMember(ChatRoom room, User user, String adminUsername)
+    {
         // 2. Create and Save the System Message (MongoDB)
         // Only do this for Groups/Channels, or whenever a new user is invited
         if (adminUsername != null) {
@@ -94,7 +199,7 @@ public class ChatRoomService {
             systemMsg.setTimestamp(java.time.OffsetDateTime.now());
 
             // THIS LINE creates the 'chatify_messages' DB in Compass
-            messageRepository.save(systemMsg);
+            recentMessageCache.append(messageRepository.save(systemMsg));
 
             // 3. Broadcast to WebSocket
             messagingTemplate.convertAndSend("/topic/room/" + room.getId(), systemMsg);
@@ -111,6 +216,7 @@ public class ChatRoomService {
         }
 
         roomMemberRepository.deleteByRoomIdAndUserId(roomId,targetUserId);
+        eventPublisher.publishEvent(RoomMembershipChangedEvent.left(roomId, targetUserId));
     }
 
     // Get all rooms for a user (their sidebar list)
@@ -124,6 +230,48 @@ public class ChatRoomService {
         return rooms;
     }
 
+    // The user's rooms with last-message previews and unread counts, newest first.
+    // One projection query plus one lookup each for activity and unread counters,
+    // however many rooms the user is in
+    @Transactional(readOnly = true)
+    public List<SidebarEntry> getSidebar(Long userId)
+    {
+        List<SidebarRoom> rooms = roomMemberRepository.findSidebarRooms(userId, ChatRoomType.DM);
+        Map<String, RoomActivity> activity = roomActivityService.activity(
+                rooms.stream().map(room -> String.valueOf(room.getId())).toList());
+        Map<String, Long> unread = unreadCounterService.getUnreadCounts(userId);
+
+        return rooms.stream()
+                .map(room -> {
+                    String roomId = String.valueOf(room.getId());
+                    return SidebarEntry.from(room, activity.get(roomId), unread.getOrDefault(roomId, 0L));
+                })
+                .sorted(Comparator.comparing(SidebarEntry::getLastMessageAt,
+                                Comparator.nullsLast(Comparator.<OffsetDateTime>reverseOrder()))
+                        .thenComparing(SidebarEntry::getRoomId, Comparator.reverseOrder()))
+                .collect(Collectors.toList());
+    }
+
+    // One keyset page of a room's members, ordered by user id
+    @Transactional(readOnly = true)
+    public MemberPageResponse getMemberPage(Long roomId, Long after, int limit)
+    {
+        int pageSize = Math.max(1, Math.min(limit, MAX_MEMBER_PAGE));
+        // Fetch one extra row to learn whether another page follows
+        List<MemberSummary> members = new ArrayList<>(roomMemberRepository.findMemberPage(
+                roomId, after == null ? 0L : after, PageRequest.of(0, pageSize + 1)));
+
+        boolean hasMore = members.size() > pageSize;
+        if (hasMore) {
+            members.remove(pageSize);
+        }
+        return MemberPageResponse.builder()
+                .members(members)
+                .nextCursor(hasMore ? members.get(members.size() - 1).getUserId() : null)
+                .hasMore(hasMore)
+                .build();
+    }
+
     // Soft delete a room (only creator/admin can do this)
     public  void deactivateRoom(Long roomId, Long requesterId)
     {
@@ -134,6 +282,13 @@ public class ChatRoomService {
             throw new UnauthorizedException("You don't have the permission to deactivate this room");
         }
         room.setActive(false);
+        if (room.getDmKey() != null) {
+            // Free the pair so the two users can open a fresh DM later
+            synchronized (dmRooms) {
+                dmRooms.remove(room.getDmKey());
+            }
+            room.setDmKey(null);
+        }
         chatRoomRepository.save(room);
     }
 }
@@ -0,0 +1,195 @@
+package com.chatify.backend.Service;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+/*
+ * Roaring-style set of non-negative ints.
+ * Values are split by their high 16 bits into containers. A container keeps
+ * a sorted char[] while it holds at most 4096 values and switches to a
+ * 65536-bit long[] beyond that, so sparse and dense sets both stay small
+ * (at most 2 bytes per value, or 8 KB per 65536 values). Not thread-safe.
+ */
+public final class CompactBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+    private static final byte KIND_ARRAY = 0;
+    private static final byte KIND_BITMAP = 1;
+
+    private final TreeMap<Character, Container> containers = new TreeMap<>();
+    private int cardinality;
+
+    public boolean add(int value) {
+        Container container = containers.computeIfAbsent(high(value), key -> new Container());
+        if (!container.add(low(value))) return false;
+        cardinality++;
+        return true;
+    }
+
+    public boolean remove(int value) {
+        Container container = containers.get(high(value));
+        if (container == null || !container.remove(low(value))) return false;
+        if (container.cardinality == 0) containers.remove(high(value));
+        cardinality--;
+        return true;
+    }
+
+    public boolean contains(int value) {
+        Container container = containers.get(high(value));
+        return container != null && container.contains(low(value));
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    // Visits every value in ascending order
+    public void forEach(IntConsumer action) {
+        for (Map.Entry<Character, Container> entry : containers.entrySet()) {
+            entry.getValue().forEach(entry.getKey() << 16, action);
+        }
+    }
+
+    // [containers: int] then per container [key: char][kind: byte][cardinality: int][payload]
+    public byte[] toBytes() {
+        int size = 4;
+        for (Container container : containers.values()) {
+            size += 2 + 1 + 4 + (container.bits != null ? BITMAP_WORDS * 8 : container.cardinality * 2);
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(containers.size());
+        for (Map.Entry<Character, Container> entry : containers.entrySet()) {
+            Container container = entry.getValue();
+            out.putChar(entry.getKey());
+            out.put(container.bits != null ? KIND_BITMAP : KIND_ARRAY);
+            out.putInt(container.cardinality);
+            if (container.bits != null) {
+                for (long word : container.bits) out.putLong(word);
+            } else {
+                for (int i = 0; i < container.cardinality; i++) out.putChar(container.values[i]);
+            }
+        }
+        return out.array();
+    }
+
+    public static CompactBitmap fromBytes(byte[] bytes) {
+        CompactBitmap bitmap = new CompactBitmap();
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        int count = in.getInt();
+        for (int c = 0; c < count; c++) {
+            char key = in.getChar();
+            byte kind = in.get();
+            Container container = new Container();
+            container.cardinality = in.getInt();
+            if (kind == KIND_BITMAP) {
+                container.values = null;
+                container.bits = new long[BITMAP_WORDS];
+                for (int i = 0; i < BITMAP_WORDS; i++) container.bits[i] = in.getLong();
+            } else {
+                container.values = new char[Math.max(4, container.cardinality)];
+                for (int i = 0; i < container.cardinality; i++) container.values[i] = in.getChar();
+            }
+            bitmap.containers.put(key, container);
+            bitmap.cardinality += container.cardinality;
+        }
+        return bitmap;
+    }
+
+    private static char high(int value) {
+        if (value < 0) throw new IllegalArgumentException("Negative value: " + value);
+        return (char) (value >>> 16);
+    }
+
+    private static char low(int value) {
+        return (char) value;
+    }
+
+    private static final class Container {
+
+        char[] values = new char[4];   // Sorted; used while bits == null
+        long[] bits;
+        int cardinality;
+
+        boolean add(char low) {
+            if (bits != null) {
+                long mask = 1L << low;
+                if ((bits[low >>> 6] & mask) != 0) return false;
+                bits[low >>> 6] |= mask;
+                cardinality++;
+                return true;
+            }
+            int at = Arrays.binarySearch(values, 0, cardinality, low);
+            if (at >= 0) return false;
+            if (cardinality == ARRAY_MAX) {
+                toBitmap();
+                return add(low);
+            }
+            at = -at - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(values, at, values, at + 1, cardinality - at);
+            values[at] = low;
+            cardinality++;
+            return true;
+        }
+
+        boolean remove(char low) {
+            if (bits != null) {
+                long mask = 1L << low;
+                if ((bits[low >>> 6] & mask) == 0) return false;
+                bits[low >>> 6] &= ~mask;
+                if (--cardinality <= ARRAY_MAX) toArray();
+                return true;
+            }
+            int at = Arrays.binarySearch(values, 0, cardinality, low);
+            if (at < 0) return false;
+            System.arraycopy(values, at + 1, values, at, cardinality - at - 1);
+            cardinality--;
+            return true;
+        }
+
+        boolean contains(char low) {
+            if (bits != null) return (bits[low >>> 6] & (1L << low)) != 0;
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        void forEach(int base, IntConsumer action) {
+            if (bits == null) {
+                for (int i = 0; i < cardinality; i++) action.accept(base | values[i]);
+                return;
+            }
+            for (int word = 0; word < BITMAP_WORDS; word++) {
+                long remaining = bits[word];
+                while (remaining != 0) {
+                    action.accept(base | (word << 6) | Long.numberOfTrailingZeros(remaining));
+                    remaining &= remaining - 1;
+                }
+            }
+        }
+
+        private void toBitmap() {
+            bits = new long[BITMAP_WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                bits[values[i] >>> 6] |= 1L << values[i];
+            }
+            values = null;
+        }
+
+        private void toArray() {
+            char[] sorted = new char[Math.max(4, cardinality)];
+            int[] next = {0};
+            forEach(0, value -> sorted[next[0]++] = (char) value);
+            values = sorted;
+            bits = null;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.chatify.backend.Service;
+
+import com.chatify.backend.Cluster.ClusterLease;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.function.LongSupplier;
+
+/*
+ * One-off data fixes that must run once per database, not once per boot.
+ * Each applied migration is recorded by name in data_migration; a node that
+ * finds the record skips the work with a single lookup. The run itself is
+ * guarded by a cluster lease, so two nodes starting together do not both
+ * scan the collection.
+ */
+@Component
+@Slf4j
+public class DataMigrations {
+
+    private static final String COLLECTION = "data_migration";
+    private static final Duration LEASE_TTL = Duration.ofMinutes(30);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ClusterLease clusterLease;
+
+    // Runs the migration unless it is recorded as applied. Returns whether it
+    // is applied now; false while another node is still running it
+    public boolean runOnce(String name, LongSupplier migration) {
+        if (isApplied(name)) return true;
+
+        String lease = "migration:" + name;
+        if (!clusterLease.tryAcquire(lease, LEASE_TTL)) return false;
+        try {
+            // Another node may have finished it while we were checking
+            if (isApplied(name)) return true;
+            long changed = migration.getAsLong();
+            mongoTemplate.insert(new Document("_id", name)
+                    .append("appliedAt", new Date())
+                    .append("documents", changed), COLLECTION);
+            log.info("Applied data migration {} ({} documents)", name, changed);
+            return true;
+        } finally {
+            clusterLease.release(lease);
+        }
+    }
+
+    private boolean isApplied(String name) {
+        return mongoTemplate.exists(Query.query(Criteria.where("_id").is(name)), COLLECTION);
+    }
+}
@@ -0,0 +1,69 @@
+package com.chatify.backend.Service;
+
+import com.chatify.backend.Entity.ChatRoom;
+import com.chatify.backend.Entity.RoomMember;
+import com.chatify.backend.Entity.User;
+import com.chatify.backend.Enum.ChatRoomType;
+import com.chatify.backend.Enum.MemberType;
+import com.chatify.backend.Event.RoomMembershipChangedEvent;
+import com.chatify.backend.Repository.ChatRoomRepository;
+import com.chatify.backend.Repository.RoomMemberRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/*
+ * Inserts the DM room row and both memberships in one transaction.
+ * The unique dm_key decides which of two concurrent opens wins: the loser's
+ * flush fails with a DataIntegrityViolationException and its transaction
+ * rolls back. The loser then reads the winner's row through findCommitted(),
+ * in a fresh READ_COMMITTED transaction that sees the winner's commit.
+ * Callers must not be transactional themselves (ChatRoomService.getOrCreateDM
+ * is not): a transaction around these would hold a second connection and
+ * would be marked rollback-only by the losing insert.
+ */
+@Service
+public class DmRoomCreator {
+
+    @Autowired
+    private ChatRoomRepository chatRoomRepository;
+
+    @Autowired
+    private RoomMemberRepository roomMemberRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Room and members commit together, so a DM is never seen without its members
+    @Transactional
+    public ChatRoom create(User user1, User user2, String dmKey) {
+        ChatRoom dm = new ChatRoom();
+        dm.setType(ChatRoomType.DM);
+        dm.setCreatedBy(user1);
+        dm.setActive(true);
+        dm.setDmKey(dmKey);
+        dm = chatRoomRepository.saveAndFlush(dm);
+
+        addMember(dm, user1);
+        addMember(dm, user2);
+        return dm;
+    }
+
+    @Transactional(isolation = Isolation.READ_COMMITTED, readOnly = true)
+    public Optional<ChatRoom> findCommitted(String dmKey) {
+        return chatRoomRepository.findByDmKey(dmKey);
+    }
+
+    private void addMember(ChatRoom dm, User user) {
+        RoomMember member = new RoomMember();
+        member.setRoom(dm);
+        member.setUser(user);
+        member.setType(MemberType.MEMBER);
+        roomMemberRepository.save(member);
+        eventPublisher.publishEvent(RoomMembershipChangedEvent.joined(dm.getId(), user.getId()));
+    }
+}
@@ -0,0 +1,566 @@
+package com.chatify.backend.Service;
+
+import com.chatify.backend.Cluster.ClusterFanout;
+import com.chatify.backend.Cluster.ClusterLease;
+import com.chatify.backend.Entity.ArchivedMessageChange;
+import com.chatify.backend.Entity.Message;
+import com.chatify.backend.Repository.ArchivedMessageChangeRepository;
+import com.chatify.backend.Repository.ChatRoomRepository;
+import com.chatify.backend.Repository.MessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/*
+ * Cold tier for chat history.
+ * Messages older than max-age-days are moved, room by room and oldest first,
+ * out of Mongo into immutable segment files (see MessageSegment) under
+ * <dir>/<roomId>/. Reads continue seamlessly from the oldest message still in
+ * Mongo into the newest archived one.
+ *
+ * A segment is written and renamed into place before its messages are
+ * deleted from Mongo, and only those exact messages are deleted, each only
+ * if it was not edited or soft-deleted since it was read. One that was is
+ * put into the segment in its new form (or left out if it was deleted) and
+ * the delete is retried. If a run dies in between, the next run finishes the
+ * delete for the newest segment, so nothing is archived twice.
+ * Segments are never rewritten for an edit or delete of an archived message:
+ * it is recorded in archived_message_change instead, and every read applies
+ * those on top (deleted ones are left out). A room's changes are loaded once
+ * and dropped on every node when one is added.
+ *
+ * With several nodes, dir must be a volume they all share: only the node
+ * holding the archive lease in Mongo writes to it, and every node lists a
+ * room's directory again whenever it changed. A TCP cluster that does not
+ * declare the directory shared keeps reading it but never archives.
+ */
+@Service
+@Slf4j
+public class MessageArchiveService {
+
+    private static final String LEASE = "message-archive";
+    private static final int MAX_DELETE_ATTEMPTS = 5;
+    // Directory times can be this coarse; a listing this fresh is not trusted
+    private static final long MTIME_SLACK_MS = 2000;
+    // How far a message's timestamp may be from the time in its id (batching, clock skew)
+    private static final long ID_TIME_SLACK_MS = 60_000;
+    private static final String CHANGED_EVENT = "archive-changed";
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ChatRoomRepository chatRoomRepository;
+
+    @Autowired
+    private RecentMessageCache recentMessageCache;
+
+    @Autowired
+    private ArchivedMessageChangeRepository changeRepository;
+
+    @Autowired
+    private ClusterLease clusterLease;
+
+    @Autowired
+    private ClusterFanout clusterFanout;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${chatify.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chatify.archive.dir:data/archive}")
+    private String dir;
+
+    // Set when dir is a volume shared by every node of the cluster
+    @Value("${chatify.archive.shared:false}")
+    private boolean shared;
+
+    @Value("${chatify.cluster.relay:loopback}")
+    private String relay;
+
+    @Value("${chatify.archive.lease-ms:600000}")
+    private long leaseMs;
+
+    @Value("${chatify.archive.max-age-days:90}")
+    private long maxAgeDays;
+
+    @Value("${chatify.archive.segment-messages:20000}")
+    private int segmentMessages;
+
+    @Value("${chatify.archive.block-messages:256}")
+    private int blockMessages;
+
+    // A room's segments, oldest first, as of the directory time they were listed at
+    // (null: list again on the next read)
+    private record RoomSegments(FileTime listedAt, List<MessageSegment> list) {}
+
+    // roomId -> segments; each entry is immutable and replaced whole
+    private final Map<String, RoomSegments> segments = new ConcurrentHashMap<>();
+
+    // roomId -> edits and deletes of its archived messages by message id;
+    // loaded on first read, dropped when one is added
+    private final Map<String, Map<String, ArchivedMessageChange>> changes = new ConcurrentHashMap<>();
+    // roomId -> times its changes were dropped; a load that overlapped one is not kept
+    private final Map<String, Long> changeGenerations = new ConcurrentHashMap<>();
+
+    private Path root;
+    private Counter archived;
+    private Timer runTimer;
+
+    @PostConstruct
+    public void init() throws IOException {
+        archived = Counter.builder("chatify.archive.messages")
+                .description("Messages moved from Mongo into segment files")
+                .register(meterRegistry);
+        runTimer = Timer.builder("chatify.archive.run")
+                .description("Time taken by one archival pass")
+                .register(meterRegistry);
+        meterRegistry.gauge("chatify.archive.segments", segments,
+                map -> map.values().stream().mapToInt(room -> room.list().size()).sum());
+
+        clusterFanout.onEvent(CHANGED_EVENT, payload -> dropChanges(new String(payload, StandardCharsets.UTF_8)));
+
+        root = Paths.get(dir);
+        Files.createDirectories(root);
+        if (enabled && !shared && "tcp".equalsIgnoreCase(relay)) {
+            // Other nodes could never see what this one archives
+            log.warn("Archiving disabled: {} is not declared shared (chatify.archive.shared) "
+                    + "but the cluster relay is tcp", root.toAbsolutePath());
+            enabled = false;
+        }
+        log.info("Message archive at {}", root.toAbsolutePath());
+    }
+
+    // The room's segments, listing its directory again if it changed since last time
+    private List<MessageSegment> segmentsOf(String roomId) {
+        // Room ids are numeric; anything else must not become a path
+        if (roomId == null || roomId.isEmpty() || !roomId.chars().allMatch(Character::isDigit)) {
+            return List.of();
+        }
+        Path roomDir = root.resolve(roomId);
+        try {
+            FileTime modified = Files.getLastModifiedTime(roomDir);
+            RoomSegments cached = segments.get(roomId);
+            if (cached != null && modified.equals(cached.listedAt())) {
+                return cached.list();
+            }
+            RoomSegments listed = listRoom(roomDir, modified, cached);
+            segments.put(roomId, listed);
+            return listed.list();
+        } catch (NoSuchFileException e) {
+            return List.of();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private RoomSegments listRoom(Path roomDir, FileTime modified, RoomSegments previous) throws IOException {
+        Map<Path, MessageSegment> open = new HashMap<>();
+        if (previous != null) {
+            previous.list().forEach(segment -> open.put(segment.path(), segment));
+        }
+
+        List<MessageSegment> loaded = new ArrayList<>();
+        try (Stream<Path> files = Files.list(roomDir)) {
+            for (Path file : files.filter(file -> file.getFileName().toString().endsWith(".seg")).toList()) {
+                // Files are only replaced whole, so a known, unchanged file keeps its mapping
+                MessageSegment known = open.get(file);
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                loaded.add(known != null && known.isCurrent(attributes) ? known : MessageSegment.open(file));
+            }
+        }
+        loaded.sort(Comparator.comparingLong(MessageSegment::firstMillis));
+
+        boolean settled = System.currentTimeMillis() - modified.toMillis() > MTIME_SLACK_MS;
+        return new RoomSegments(settled ? modified : null, List.copyOf(loaded));
+    }
+
+    // ─── Reads ───────────────────────────────────────────
+
+    public long count(String roomId) {
+        List<MessageSegment> room = segmentsOf(roomId);
+        if (room.isEmpty()) return 0;
+        long deleted = changesOf(roomId).values().stream().filter(ArchivedMessageChange::isDeleted).count();
+        return room.stream().mapToLong(MessageSegment::messageCount).sum() - deleted;
+    }
+
+    // Archived messages strictly older than (beforeTimestamp, beforeId), newest first.
+    // Pass nulls to start from the newest archived message
+    public List<Message> readBefore(String roomId, OffsetDateTime beforeTimestamp, String beforeId, int limit) {
+        List<MessageSegment> room = segmentsOf(roomId);
+        if (room.isEmpty()) return List.of();
+        Map<String, ArchivedMessageChange> changed = changesOf(roomId);
+        long beforeMillis = beforeTimestamp == null ? Long.MAX_VALUE : beforeTimestamp.toInstant().toEpochMilli();
+        List<Message> result = new ArrayList<>(limit);
+
+        for (int s = room.size() - 1; s >= 0 && result.size() < limit; s--) {
+            MessageSegment segment = room.get(s);
+            if (segment.firstMillis() > beforeMillis) continue;
+
+            for (int b = segment.blockCount() - 1; b >= 0 && result.size() < limit; b--) {
+                // Every message in this block is at or after its first timestamp
+                if (segment.blockFirstMillis(b) > beforeMillis) continue;
+
+                List<Message> block = visible(readBlock(segment, b), changed);
+                for (int i = block.size() - 1; i >= 0 && result.size() < limit; i--) {
+                    Message message = block.get(i);
+                    if (beforeTimestamp == null || isBefore(message, beforeMillis, beforeId)) {
+                        result.add(message);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    // Archived messages newest first, skipping the newest `skip`
+    public List<Message> read(String roomId, long skip, int limit) {
+        List<MessageSegment> room = segmentsOf(roomId);
+        if (room.isEmpty()) return List.of();
+        Map<String, ArchivedMessageChange> changed = changesOf(roomId);
+        List<Message> result = new ArrayList<>(limit);
+        long toSkip = skip;
+
+        for (int s = room.size() - 1; s >= 0 && result.size() < limit; s--) {
+            MessageSegment segment = room.get(s);
+            // Whole segments and blocks are skipped from the index without
+            // inflating them, unless a deleted message may be among them
+            if (toSkip >= segment.messageCount() && !deletedWithin(changed, segment.firstMillis(),
+                    segment.lastTimestamp().toInstant().toEpochMilli())) {
+                toSkip -= segment.messageCount();
+                continue;
+            }
+            for (int b = segment.blockCount() - 1; b >= 0 && result.size() < limit; b--) {
+                if (toSkip >= segment.blockSize(b)
+                        && !deletedWithin(changed, segment.blockFirstMillis(b), blockLastMillis(segment, b))) {
+                    toSkip -= segment.blockSize(b);
+                    continue;
+                }
+                List<Message> block = visible(readBlock(segment, b), changed);
+                if (toSkip >= block.size()) {
+                    toSkip -= block.size();
+                    continue;
+                }
+                for (int i = block.size() - 1 - (int) toSkip; i >= 0 && result.size() < limit; i--) {
+                    result.add(block.get(i));
+                }
+                toSkip = 0;
+            }
+        }
+        return result;
+    }
+
+    // One archived message, with its edit or delete applied (a deleted one is
+    // returned flagged, like a soft-deleted one in Mongo). Ids are ObjectIds
+    // minted when the message was sent, so their embedded time picks the few
+    // blocks that can hold it
+    public Optional<Message> findById(String roomId, String messageId) {
+        if (!ObjectId.isValid(messageId)) return Optional.empty();
+        List<MessageSegment> room = segmentsOf(roomId);
+        if (room.isEmpty()) return Optional.empty();
+        long created = new ObjectId(messageId).getDate().getTime();
+        long from = created - ID_TIME_SLACK_MS;
+        long to = created + ID_TIME_SLACK_MS;
+
+        for (MessageSegment segment : room) {
+            for (int b = 0; b < segment.blockCount(); b++) {
+                if (blockLastMillis(segment, b) < from || segment.blockFirstMillis(b) > to) continue;
+                for (Message message : readBlock(segment, b)) {
+                    if (messageId.equals(message.getId())) {
+                        return Optional.of(applyChange(message, changesOf(roomId).get(messageId)));
+                    }
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static long blockLastMillis(MessageSegment segment, int block) {
+        return block + 1 < segment.blockCount()
+                ? segment.blockFirstMillis(block + 1)
+                : segment.lastTimestamp().toInstant().toEpochMilli();
+    }
+
+    private List<Message> readBlock(MessageSegment segment, int block) {
+        try {
+            return segment.readBlock(block, objectMapper);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The block's messages with their edits applied and the deleted ones left out
+    private static List<Message> visible(List<Message> block, Map<String, ArchivedMessageChange> changed) {
+        if (changed.isEmpty()) return block;
+        List<Message> visible = new ArrayList<>(block.size());
+        for (Message message : block) {
+            Message current = applyChange(message, changed.get(message.getId()));
+            if (!current.isDeleted()) visible.add(current);
+        }
+        return visible;
+    }
+
+    private static Message applyChange(Message message, ArchivedMessageChange change) {
+        if (change == null) return message;
+        if (change.getContent() != null) {
+            message.setContent(change.getContent());
+            message.setEdited(true);
+            message.setEditedAt(change.getEditedAt());
+        }
+        if (change.isDeleted()) {
+            message.setDeleted(true);
+            message.setDeletedAt(change.getDeletedAt());
+        }
+        return message;
+    }
+
+    // Whether a deleted message may lie between the two times (inclusive)
+    private static boolean deletedWithin(Map<String, ArchivedMessageChange> changed, long fromMillis, long toMillis) {
+        for (ArchivedMessageChange change : changed.values()) {
+            if (!change.isDeleted()) continue;
+            long millis = change.getTimestamp().toInstant().toEpochMilli();
+            if (millis >= fromMillis && millis <= toMillis) return true;
+        }
+        return false;
+    }
+
+    // Same (timestamp, id) order as the Mongo history index
+    private static boolean isBefore(Message message, long beforeMillis, String beforeId) {
+        long millis = MessageSegment.millis(message);
+        return millis < beforeMillis || (millis == beforeMillis && message.getId().compareTo(beforeId) < 0);
+    }
+
+    // ─── Edits and deletes ───────────────────────────────
+
+    // The message (as returned by findById) is left out of every read from now on.
+    // Its segment keeps the bytes: segments are immutable
+    public Message delete(Message message) {
+        OffsetDateTime now = OffsetDateTime.now();
+        recordChange(message, change -> {
+            change.setDeleted(true);
+            change.setDeletedAt(now);
+        });
+        message.setDeleted(true);
+        message.setDeletedAt(now);
+        return message;
+    }
+
+    public Message edit(Message message, String content) {
+        OffsetDateTime now = OffsetDateTime.now();
+        recordChange(message, change -> {
+            change.setContent(content);
+            change.setEditedAt(now);
+        });
+        message.setContent(content);
+        message.setEdited(true);
+        message.setEditedAt(now);
+        return message;
+    }
+
+    private void recordChange(Message message, Consumer<ArchivedMessageChange> update) {
+        ArchivedMessageChange change = changeRepository.findById(message.getId())
+                .orElseGet(() -> {
+                    ArchivedMessageChange created = new ArchivedMessageChange();
+                    created.setMessageId(message.getId());
+                    created.setRoomId(message.getRoomId());
+                    created.setTimestamp(message.getTimestamp());
+                    return created;
+                });
+        update.accept(change);
+        changeRepository.save(change);
+
+        dropChanges(message.getRoomId());
+        clusterFanout.publishEvent(CHANGED_EVENT, message.getRoomId().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Map<String, ArchivedMessageChange> changesOf(String roomId) {
+        Map<String, ArchivedMessageChange> cached = changes.get(roomId);
+        if (cached != null) return cached;
+
+        long generation = changeGenerations.getOrDefault(roomId, 0L);
+        Map<String, ArchivedMessageChange> loaded = new HashMap<>();
+        changeRepository.findByRoomId(roomId).forEach(change -> loaded.put(change.getMessageId(), change));
+        Map<String, ArchivedMessageChange> room = Map.copyOf(loaded);
+        // Kept only if no change was recorded while loading
+        changes.compute(roomId, (id, current) ->
+                changeGenerations.getOrDefault(id, 0L) == generation ? room : current);
+        return room;
+    }
+
+    private void dropChanges(String roomId) {
+        changes.compute(roomId, (id, current) -> {
+            changeGenerations.merge(id, 1L, Long::sum);
+            return null;
+        });
+    }
+
+    // ─── Archival ────────────────────────────────────────
+
+    @Scheduled(fixedDelayString = "${chatify.archive.interval-ms:3600000}",
+            initialDelayString = "${chatify.archive.initial-delay-ms:60000}")
+    public void archiveOldMessages() {
+        if (!enabled) return;
+        if (!holdLease()) {
+            log.debug("Another node holds the archive lease; skipping this pass");
+            return;
+        }
+        OffsetDateTime cutoff = OffsetDateTime.now().minusDays(maxAgeDays);
+
+        try {
+            runTimer.record(() -> {
+                for (Long roomId : chatRoomRepository.findAllIds()) {
+                    if (!holdLease()) {
+                        log.warn("Lost the archive lease; stopping this pass");
+                        return;
+                    }
+                    try {
+                        archiveRoom(String.valueOf(roomId), cutoff);
+                    } catch (IOException | RuntimeException e) {
+                        // Leave the room for the next pass; Mongo still has its messages
+                        log.warn("Archiving room {} failed: {}", roomId, e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            clusterLease.release(LEASE);
+        }
+    }
+
+    // Takes or renews the lease; called before every unit of work
+    private boolean holdLease() {
+        return clusterLease.tryAcquire(LEASE, Duration.ofMillis(leaseMs));
+    }
+
+    private void archiveRoom(String roomId, OffsetDateTime cutoff) throws IOException {
+        Path roomDir = root.resolve(roomId);
+        deleteAbandonedTempFiles(roomDir);
+        finishInterruptedRun(roomId);
+
+        while (holdLease()) {
+            List<Message> batch = messageRepository.findOldestBefore(roomId, cutoff, segmentMessages);
+            if (batch.isEmpty()) return;
+
+            Message first = batch.get(0);
+            Files.createDirectories(roomDir);
+            Path file = roomDir.resolve(String.format("%013d-%s.seg", MessageSegment.millis(first), first.getId()));
+            List<Message> moved = moveToSegment(file, batch);
+
+            recentMessageCache.remove(roomId, batch.stream().map(Message::getId).toList());
+            archived.increment(moved.size());
+            log.debug("Archived {} messages of room {} into {}", moved.size(), roomId, file.getFileName());
+
+            if (batch.size() < segmentMessages) return;
+        }
+    }
+
+    // Writes the segment, then deletes exactly its messages from Mongo. Messages
+    // edited or soft-deleted in between survive the delete: the segment is
+    // rewritten with their current form (without the deleted ones, which the
+    // purge removes later) and the delete retried for them. Returns what the
+    // segment ends up holding
+    private List<Message> moveToSegment(Path file, List<Message> batch) throws IOException {
+        List<Message> contents = batch;
+        List<Message> toDelete = batch;
+
+        for (int attempt = 1; ; attempt++) {
+            if (contents.isEmpty()) {
+                Files.deleteIfExists(file);
+                return contents;
+            }
+            MessageSegment.write(file, contents, blockMessages, objectMapper);
+            if (toDelete.isEmpty() || messageRepository.deleteUnchanged(toDelete) == toDelete.size()) {
+                return contents;
+            }
+
+            Map<String, Message> changed = new HashMap<>();
+            messageRepository.findAllById(toDelete.stream().map(Message::getId).toList())
+                    .forEach(message -> changed.put(message.getId(), message));
+            if (changed.isEmpty()) return contents;
+
+            if (attempt == MAX_DELETE_ATTEMPTS) {
+                // Still changing: leave them in Mongo for the next pass
+                log.warn("{} messages kept changing while being archived into {}; left in Mongo",
+                        changed.size(), file.getFileName());
+                contents = contents.stream().filter(message -> !changed.containsKey(message.getId())).toList();
+                toDelete = List.of();
+            } else {
+                contents = contents.stream()
+                        .map(message -> changed.getOrDefault(message.getId(), message))
+                        .filter(message -> !message.isDeleted())
+                        .toList();
+                toDelete = changed.values().stream().filter(message -> !message.isDeleted()).toList();
+            }
+        }
+    }
+
+    // A segment whose messages were not all deleted from Mongo when the last run stopped
+    private void finishInterruptedRun(String roomId) throws IOException {
+        List<MessageSegment> room = segmentsOf(roomId);
+        if (room.isEmpty()) return;
+        MessageSegment newest = room.get(room.size() - 1);
+
+        // Cheap check first: is anything live left at or before the segment's last message?
+        List<Message> oldest = messageRepository.findOldestBefore(
+                roomId, newest.lastTimestamp().plusNanos(1_000_000), 1);
+        if (oldest.isEmpty() || isBefore(newest, oldest.get(0))) return;
+
+        List<Message> contents = moveToSegment(newest.path(), newest.readAll(objectMapper));
+        recentMessageCache.remove(roomId, contents.stream().map(Message::getId).toList());
+        log.info("Finished an interrupted archival run of room {} ({})", roomId, newest.path().getFileName());
+    }
+
+    // Whether the message comes after the segment's last one
+    private static boolean isBefore(MessageSegment segment, Message message) {
+        long millis = MessageSegment.millis(message);
+        long lastMillis = segment.lastTimestamp().toInstant().toEpochMilli();
+        return millis > lastMillis || (millis == lastMillis && message.getId().compareTo(segment.lastId()) > 0);
+    }
+
+    // Temp files of a run that died mid-write; old enough that no holder of the
+    // lease can still be writing them
+    private void deleteAbandonedTempFiles(Path roomDir) throws IOException {
+        if (!Files.isDirectory(roomDir)) return;
+        long abandonedBefore = System.currentTimeMillis() - leaseMs;
+        try (Stream<Path> files = Files.list(roomDir)) {
+            for (Path file : files.filter(file -> file.getFileName().toString().endsWith(".tmp")).toList()) {
+                if (Files.getLastModifiedTime(file).toMillis() < abandonedBefore) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+}
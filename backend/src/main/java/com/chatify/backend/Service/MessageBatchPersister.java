@@ -0,0 +1,237 @@
+package com.chatify.backend.Service;
+
+import com.chatify.backend.Entity.Message;
+import com.chatify.backend.Exception.ServiceUnavailableException;
+import com.chatify.backend.Repository.MessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/*
+ * Write-behind persister for chat messages.
+ * Senders enqueue a message and wait on a future; a single writer thread
+ * collects whatever arrives within the batch window (or until the batch is
+ * full) and stores it with one bulk insert. Each sender gets its saved
+ * message back — with the Mongo id — once its batch has been written.
+ *
+ * The queue is bounded and senders wait at most max-wait-ms, so a stalled
+ * writer sheds load with ServiceUnavailableException instead of parking
+ * every inbound thread. A sender that gives up withdraws its message: it
+ * leaves the queue, and if its batch was already on the way to Mongo the
+ * writer deletes it again, so a 503 never leaves behind a message nobody
+ * broadcast. Ids are assigned before the insert: if a bulk insert
+ * fails, each message is retried on its own and one that already made it in
+ * is recognised by its duplicate id, so a single bad document only fails
+ * its own sender.
+ */
+@Service
+@Slf4j
+public class MessageBatchPersister {
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${chatify.messages.batch.window-ms:5}")
+    private long windowMs;
+
+    @Value("${chatify.messages.batch.max-size:200}")
+    private int maxBatchSize;
+
+    @Value("${chatify.messages.batch.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${chatify.messages.batch.max-wait-ms:5000}")
+    private long maxWaitMs;
+
+    private BlockingQueue<PendingMessage> queue;
+
+    private DistributionSummary batchFill;
+    private Counter rejected;
+    private Timer flushTimer;
+    private Thread writer;
+    private volatile boolean running;
+
+    private record PendingMessage(Message message, CompletableFuture<Message> result) {}
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        batchFill = DistributionSummary.builder("chatify.messages.batch.fill")
+                .description("Messages written per bulk insert")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("chatify.messages.batch.flush")
+                .description("Time taken by one bulk insert")
+                .register(meterRegistry);
+        meterRegistry.gaugeCollectionSize("chatify.messages.batch.queued", List.of(), queue);
+        rejected = Counter.builder("chatify.messages.batch.rejected")
+                .description("Saves refused because the queue was full or the writer fell behind")
+                .register(meterRegistry);
+
+        running = true;
+        writer = new Thread(this::runWriter, "message-batch-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+        // Anything still queued is written before the context goes away
+        List<PendingMessage> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) flush(rest);
+    }
+
+    // Blocks until the batch containing this message has been written, or max-wait-ms
+    public Message save(Message message) {
+        if (!running) {
+            throw new ServiceUnavailableException("Message store is shutting down");
+        }
+        if (message.getId() == null) {
+            message.setId(new ObjectId().toHexString());
+        }
+
+        CompletableFuture<Message> result = new CompletableFuture<>();
+        PendingMessage pending = new PendingMessage(message, result);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        try {
+            if (!queue.offer(pending, maxWaitMs, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                throw new ServiceUnavailableException("Too many messages queued, please retry");
+            }
+            try {
+                return result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (!withdraw(pending)) return result.get();   // Written just now
+                rejected.increment();
+                throw new ServiceUnavailableException("Message store is not keeping up, please retry");
+            } catch (InterruptedException e) {
+                if (!withdraw(pending)) return result.get();
+                throw e;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while saving the message");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // Cancelling first decides the race with the writer: once cancelled, a
+    // result the writer reaches is refused and it deletes what it wrote.
+    // False when the message was already stored (or failed) in the meantime
+    private boolean withdraw(PendingMessage pending) {
+        if (!pending.result().cancel(false)) return false;
+        queue.remove(pending);
+        return true;
+    }
+
+    private void runWriter() {
+        List<PendingMessage> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                // 1. Wait for the first message of the next batch
+                PendingMessage first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                // 2. Keep collecting until the window closes or the batch is full
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMs);
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+                    PendingMessage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                }
+
+                // 3. One bulk insert for the whole batch
+                flush(batch);
+            } catch (InterruptedException e) {
+                if (!batch.isEmpty()) flush(batch);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Keep the writer alive; whoever was in this batch hears about it
+                log.error("Message writer failed: {}", e.getMessage());
+                batch.forEach(pending -> pending.result().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingMessage> batch) {
+        // Senders that gave up while queued are not written at all
+        batch.removeIf(pending -> pending.result().isCancelled());
+        if (batch.isEmpty()) return;
+
+        List<Message> messages = batch.stream().map(PendingMessage::message).toList();
+        List<String> withdrawn = new ArrayList<>();
+        long start = System.nanoTime();
+        try {
+            List<Message> saved = messageRepository.insert(messages);
+            for (int i = 0; i < batch.size(); i++) {
+                if (!batch.get(i).result().complete(saved.get(i))) withdrawn.add(saved.get(i).getId());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Bulk insert of {} messages failed, inserting one by one: {}", batch.size(), e.getMessage());
+            for (PendingMessage pending : batch) {
+                if (!insertOne(pending)) withdrawn.add(pending.message().getId());
+            }
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            batchFill.record(batch.size());
+        }
+        deleteWithdrawn(withdrawn);
+    }
+
+    // False when the message was written but its sender had already given up
+    private boolean insertOne(PendingMessage pending) {
+        try {
+            return pending.result().complete(messageRepository.insert(pending.message()));
+        } catch (DuplicateKeyException e) {
+            // Already written by the part of the bulk insert that succeeded
+            return pending.result().complete(pending.message());
+        } catch (RuntimeException e) {
+            log.error("Insert of message {} failed: {}", pending.message().getId(), e.getMessage());
+            pending.result().completeExceptionally(e);
+            return true;
+        }
+    }
+
+    // Written while their senders were being told 503: nobody broadcast them
+    private void deleteWithdrawn(List<String> ids) {
+        if (ids.isEmpty()) return;
+        try {
+            messageRepository.deleteAllById(ids);
+            log.info("Deleted {} message(s) written after their senders gave up", ids.size());
+        } catch (RuntimeException e) {
+            log.error("Could not delete withdrawn messages {}: {}", ids, e.getMessage());
+        }
+    }
+}
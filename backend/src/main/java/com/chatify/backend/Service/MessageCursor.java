@@ -0,0 +1,37 @@
+package com.chatify.backend.Service;
+
+import com.chatify.backend.Entity.Message;
+import com.chatify.backend.Exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+// Opaque history cursor: the (timestamp, id) of the last message a client has seen
+public record MessageCursor(OffsetDateTime timestamp, String messageId) {
+
+    public static MessageCursor of(Message message) {
+        return new MessageCursor(message.getTimestamp(), message.getId());
+    }
+
+    public String encode() {
+        String raw = timestamp.toInstant().toEpochMilli() + ":" + messageId;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static MessageCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(':');
+            long millis = Long.parseLong(raw.substring(0, sep));
+            return new MessageCursor(
+                    Instant.ofEpochMilli(millis).atOffset(ZoneOffset.UTC),
+                    raw.substring(sep + 1));
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Invalid history cursor");
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.chatify.backend.Service;
+
+import com.chatify.backend.Repository.MessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Compaction of soft-deleted messages.
+ * A deleted message stays in Mongo (hidden from history) for the grace
+ * period, then this job removes it for good. Deletes go out in bulk batches
+ * paced to max-per-second, and a pass stops after max-run-ms, so purging a
+ * large backlog is spread over several passes instead of competing with
+ * live traffic for Mongo.
+ */
+@Service
+@Slf4j
+public class MessagePurgeService {
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private DataMigrations dataMigrations;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${chatify.purge.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chatify.purge.grace-period-hours:24}")
+    private long gracePeriodHours;
+
+    @Value("${chatify.purge.batch-size:500}")
+    private int batchSize;
+
+    @Value("${chatify.purge.max-per-second:2000}")
+    private int maxPerSecond;
+
+    @Value("${chatify.purge.max-run-ms:60000}")
+    private long maxRunMs;
+
+    private Counter purged;
+    private Timer batchTimer;
+    private final AtomicLong lastRunRate = new AtomicLong();
+    private volatile boolean backfilled;
+
+    @PostConstruct
+    public void init() {
+        purged = Counter.builder("chatify.purge.messages")
+                .description("Soft-deleted messages removed from Mongo")
+                .register(meterRegistry);
+        batchTimer = Timer.builder("chatify.purge.batch")
+                .description("Time taken by one bulk delete")
+                .register(meterRegistry);
+        meterRegistry.gauge("chatify.purge.last-run.rate", lastRunRate);
+    }
+
+    @Scheduled(fixedDelayString = "${chatify.purge.interval-ms:300000}",
+            initialDelayString = "${chatify.purge.initial-delay-ms:30000}")
+    public void purge() {
+        if (!enabled) return;
+
+        // Messages deleted before deletedAt existed start their grace period now.
+        // A full scan, so it runs once per database; until then they just wait
+        if (!backfilled) {
+            backfilled = dataMigrations.runOnce("message-deleted-at-backfill",
+                    () -> messageRepository.backfillDeletedAt(OffsetDateTime.now()));
+        }
+
+        OffsetDateTime cutoff = OffsetDateTime.now().minusHours(gracePeriodHours);
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxRunMs);
+        long nanosPerBatch = TimeUnit.SECONDS.toNanos(1) * batchSize / Math.max(1, maxPerSecond);
+        long total = 0;
+
+        while (System.nanoTime() < deadline) {
+            long batchStart = System.nanoTime();
+            List<String> ids = messageRepository.findPurgeableIds(cutoff, batchSize);
+            if (ids.isEmpty()) break;
+
+            long deleted = batchTimer.record(() -> messageRepository.purgeByIds(ids));
+            purged.increment(deleted);
+            total += deleted;
+            if (ids.size() < batchSize) break;
+
+            // Pace the batches so one pass never deletes faster than max-per-second
+            long pause = nanosPerBatch - (System.nanoTime() - batchStart);
+            if (pause > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(pause);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+
+        long elapsedMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        lastRunRate.set(total * 1000 / elapsedMs);
+        if (total > 0) {
+            log.info("Purged {} soft-deleted messages in {} ms ({}/s)", total, elapsedMs, lastRunRate.get());
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.chatify.backend.Service;
+
+import com.chatify.backend.DTO.MessageSearchResponse;
+import com.chatify.backend.Entity.Message;
+import com.chatify.backend.Exception.BadRequestException;
+import com.chatify.backend.Exception.ServiceUnavailableException;
+import com.chatify.backend.Repository.MessageRepository;
+import com.chatify.backend.Repository.RoomMemberRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/*
+ * Message search on the room-prefixed Mongo text index.
+ * Mongo keeps that index current on every insert, edit and soft delete, so
+ * there is nothing to maintain here. A text index with a prefix needs an
+ * equality on roomId (an $in is not accepted), so searching all of a user's
+ * rooms asks each room for its best hits in parallel and merges them by score.
+ * The fan-out is bounded: a request splits its rooms into at most
+ * fanout-threads slices, the pool's queue is bounded (full means 503), and
+ * rooms not searched within timeout-ms are left out of a partial answer.
+ */
+@Service
+public class MessageSearchService {
+
+    private static final int MAX_PAGE_SIZE = 50;
+    // Offset pagination over ranked hits: deep pages get expensive, so stop here
+    private static final int MAX_RESULT_WINDOW = 500;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private RoomMemberRepository roomMemberRepository;
+
+    @Value("${chatify.search.fanout-threads:8}")
+    private int fanoutThreads;
+
+    @Value("${chatify.search.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${chatify.search.timeout-ms:2000}")
+    private long timeoutMs;
+
+    private ThreadPoolExecutor fanout;
+
+    private static final Comparator<Message> BEST_FIRST = Comparator
+            .comparing((Message message) -> message.getScore() == null ? 0f : message.getScore())
+            .reversed()
+            .thenComparing(Message::getTimestamp, Comparator.nullsLast(Comparator.<OffsetDateTime>reverseOrder()));
+
+    public MessageSearchResponse searchRoom(String roomId, String query, int page, int size) {
+        String terms = validate(query, page, size);
+        int window = (page + 1) * size;
+        return toPage(messageRepository.searchInRoom(roomId, terms, window + 1), page, size);
+    }
+
+    public MessageSearchResponse searchUserRooms(Long userId, String query, int page, int size) {
+        String terms = validate(query, page, size);
+        int window = (page + 1) * size;
+
+        List<Long> roomIds = roomMemberRepository.findRoomIdsByUserId(userId);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+
+        // Rooms are dealt round-robin into slices, each searched in turn by one task
+        int slices = Math.max(1, Math.min(fanoutThreads, roomIds.size()));
+        List<List<Long>> slicedRooms = new ArrayList<>();
+        for (int i = 0; i < slices; i++) slicedRooms.add(new ArrayList<>());
+        for (int i = 0; i < roomIds.size(); i++) slicedRooms.get(i % slices).add(roomIds.get(i));
+
+        // Hits of every room searched so far; what is here at the deadline is the answer
+        Queue<List<Message>> searched = new ConcurrentLinkedQueue<>();
+        List<Future<?>> tasks = new ArrayList<>();
+        try {
+            for (List<Long> slice : slicedRooms) {
+                tasks.add(executor().submit(() -> {
+                    for (Long roomId : slice) {
+                        if (Thread.currentThread().isInterrupted() || System.nanoTime() > deadline) return;
+                        searched.add(messageRepository.searchInRoom(String.valueOf(roomId), terms, window + 1));
+                    }
+                }));
+            }
+        } catch (RejectedExecutionException e) {
+            tasks.forEach(task -> task.cancel(true));
+            throw new ServiceUnavailableException("Search is busy right now, please retry shortly");
+        }
+
+        boolean partial = false;
+        for (Future<?> task : tasks) {
+            try {
+                task.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                partial = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                partial = true;
+                break;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    tasks.forEach(other -> other.cancel(true));
+                    throw cause;
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        if (partial) {
+            // Stop the slices still running; rooms they did not reach are left out
+            tasks.forEach(task -> task.cancel(true));
+        }
+
+        List<Message> hits = new ArrayList<>();
+        searched.forEach(hits::addAll);
+        hits.sort(BEST_FIRST);
+        MessageSearchResponse response = toPage(hits, page, size);
+        response.setPartial(partial);
+        return response;
+    }
+
+    private static String validate(String query, int page, int size) {
+        String terms = query == null ? "" : query.trim();
+        if (terms.length() < 2 || terms.length() > 100) {
+            throw new BadRequestException("Search text must be between 2 and 100 characters");
+        }
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestException("page must be >= 0 and size between 1 and " + MAX_PAGE_SIZE);
+        }
+        if ((page + 1) * size > MAX_RESULT_WINDOW) {
+            throw new BadRequestException("Only the first " + MAX_RESULT_WINDOW + " results can be paged through");
+        }
+        return terms;
+    }
+
+    // hits are sorted best first and hold up to one more than this page needs
+    private static MessageSearchResponse toPage(List<Message> hits, int page, int size) {
+        int from = Math.min(page * size, hits.size());
+        int to = Math.min(from + size, hits.size());
+        return MessageSearchResponse.builder()
+                .messages(new ArrayList<>(hits.subList(from, to)))
+                .page(page)
+                .size(size)
+                .hasMore(hits.size() > to)
+                .build();
+    }
+
+    private synchronized ThreadPoolExecutor executor() {
+        if (fanout == null) {
+            fanout = new ThreadPoolExecutor(fanoutThreads, fanoutThreads, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    task -> {
+                        Thread thread = new Thread(task, "message-search");
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+        }
+        return fanout;
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (fanout != null) fanout.shutdownNow();
+    }
+}
@@ -0,0 +1,306 @@
+package com.chatify.backend.Service;
+
+import com.chatify.backend.Entity.Message;
+import com.chatify.backend.Enum.MessageType;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/*
+ * One immutable archive file holding a run of a room's messages, oldest first.
+ *
+ *   [block 0] ... [block n-1]   deflated JSON arrays of up to blockSize messages
+ *   [index]                     per block: first timestamp (epoch ms), message count,
+ *                               file offset, compressed and raw length
+ *   [last message]              timestamp (epoch ms) and id of the newest message
+ *   [trailer]                   index offset, block count, MAGIC
+ *
+ * The file is memory-mapped read-only. Only the sparse index lives on the
+ * heap, and a read inflates just the blocks it touches. Blocks hold
+ * ArchivedMessage records rather than the entity, so the file format does not
+ * shift when Message or its JSON shape does.
+ *
+ * A file is only ever replaced whole (by rename), so the identity of the
+ * file that was mapped tells whether this instance is still current.
+ */
+final class MessageSegment {
+
+    private static final int MAGIC = 0x43534547;   // "CSEG"
+    private static final int TRAILER_BYTES = 8 + 4 + 4;
+
+    private final Path path;
+    private final MappedByteBuffer data;
+    private final Object fileKey;
+    private final FileTime modified;
+
+    private record ArchivedMessage(String id, String roomId, String senderId, String senderName,
+                                   String senderAvatarUrl, String senderEmail, String content,
+                                   MessageType type, boolean edited, OffsetDateTime timestamp,
+                                   OffsetDateTime editedAt) {
+
+        static ArchivedMessage of(Message message) {
+            return new ArchivedMessage(message.getId(), message.getRoomId(), message.getSenderId(),
+                    message.getSenderName(), message.getSenderAvatarUrl(), message.getSenderEmail(),
+                    message.getContent(), message.getType(), message.isEdited(),
+                    message.getTimestamp(), message.getEditedAt());
+        }
+
+        Message toMessage() {
+            Message message = new Message();
+            message.setId(id);
+            message.setRoomId(roomId);
+            message.setSenderId(senderId);
+            message.setSenderName(senderName);
+            message.setSenderAvatarUrl(senderAvatarUrl);
+            message.setSenderEmail(senderEmail);
+            message.setContent(content);
+            message.setType(type);
+            message.setEdited(edited);
+            message.setTimestamp(timestamp);
+            message.setEditedAt(editedAt);
+            return message;
+        }
+    }
+
+    // Sparse index, one entry per block
+    private final long[] blockFirstMillis;
+    private final int[] blockCounts;
+    private final int[] blockOffsets;
+    private final int[] blockLengths;
+    private final int[] blockRawLengths;
+
+    private final long messageCount;
+    private final OffsetDateTime lastTimestamp;
+    private final String lastId;
+
+    private MessageSegment(Path path, MappedByteBuffer data, BasicFileAttributes attributes) throws IOException {
+        this.path = path;
+        this.data = data;
+        this.fileKey = attributes.fileKey();
+        this.modified = attributes.lastModifiedTime();
+
+        int size = data.capacity();
+        if (size < TRAILER_BYTES || data.getInt(size - 4) != MAGIC) {
+            throw new IOException("Not a message segment: " + path);
+        }
+        long indexOffset = data.getLong(size - TRAILER_BYTES);
+        int blocks = data.getInt(size - 8);
+        // Index entries plus at least the last message's timestamp and id length
+        if (indexOffset < 0 || blocks <= 0 || indexOffset + 24L * blocks + 10 > size - TRAILER_BYTES) {
+            throw new IOException("Corrupt index in " + path);
+        }
+        int position = (int) indexOffset;
+
+        blockFirstMillis = new long[blocks];
+        blockCounts = new int[blocks];
+        blockOffsets = new int[blocks];
+        blockLengths = new int[blocks];
+        blockRawLengths = new int[blocks];
+        long count = 0;
+        for (int i = 0; i < blocks; i++) {
+            blockFirstMillis[i] = data.getLong(position);
+            blockCounts[i] = data.getInt(position + 8);
+            blockOffsets[i] = data.getInt(position + 12);
+            blockLengths[i] = data.getInt(position + 16);
+            blockRawLengths[i] = data.getInt(position + 20);
+            if (blockOffsets[i] < 0 || blockLengths[i] < 0 || blockRawLengths[i] < 0
+                    || (long) blockOffsets[i] + blockLengths[i] > indexOffset) {
+                throw new IOException("Corrupt index entry " + i + " in " + path);
+            }
+            count += blockCounts[i];
+            position += 24;
+        }
+        messageCount = count;
+
+        lastTimestamp = Instant.ofEpochMilli(data.getLong(position)).atOffset(ZoneOffset.UTC);
+        int idLength = data.getShort(position + 8);
+        if (idLength < 0 || position + 10 + idLength > size - TRAILER_BYTES) {
+            throw new IOException("Corrupt index in " + path);
+        }
+        byte[] id = new byte[idLength];
+        data.get(position + 10, id);
+        lastId = new String(id, StandardCharsets.UTF_8);
+    }
+
+    static MessageSegment open(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new MessageSegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()),
+                    attributes);
+        }
+    }
+
+    // Writes next to the target and renames it into place, so a segment file
+    // is either complete or absent (and the old one, if any, stays whole until then)
+    static MessageSegment write(Path file, List<Message> oldestFirst, int blockSize,
+                                ObjectMapper objectMapper) throws IOException {
+        if (oldestFirst.isEmpty()) {
+            throw new IllegalArgumentException("A segment needs at least one message");
+        }
+        Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        DataOutputStream indexOut = new DataOutputStream(index);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            int offset = 0;
+            int blocks = 0;
+            for (int from = 0; from < oldestFirst.size(); from += blockSize) {
+                List<Message> block = oldestFirst.subList(from, Math.min(from + blockSize, oldestFirst.size()));
+                byte[] raw = objectMapper.writeValueAsBytes(block.stream().map(ArchivedMessage::of).toList());
+                byte[] compressed = deflate(deflater, raw);
+                writeFully(channel, compressed);
+
+                indexOut.writeLong(millis(block.get(0)));
+                indexOut.writeInt(block.size());
+                indexOut.writeInt(offset);
+                indexOut.writeInt(compressed.length);
+                indexOut.writeInt(raw.length);
+                offset += compressed.length;
+                blocks++;
+            }
+
+            Message last = oldestFirst.get(oldestFirst.size() - 1);
+            byte[] lastId = last.getId().getBytes(StandardCharsets.UTF_8);
+            indexOut.writeLong(millis(last));
+            indexOut.writeShort(lastId.length);
+            indexOut.write(lastId);
+
+            indexOut.writeLong(offset);
+            indexOut.writeInt(blocks);
+            indexOut.writeInt(MAGIC);
+            writeFully(channel, index.toByteArray());
+            channel.force(true);
+        } finally {
+            deflater.end();
+        }
+
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        return open(file);
+    }
+
+    // Messages of one block, oldest first
+    List<Message> readBlock(int block, ObjectMapper objectMapper) throws IOException {
+        byte[] raw = new byte[blockRawLengths[block]];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data.slice(blockOffsets[block], blockLengths[block]));
+            int read = 0;
+            while (read < raw.length && !inflater.finished()) {
+                int n = inflater.inflate(raw, read, raw.length - read);
+                if (n == 0 && inflater.needsInput()) break;
+                read += n;
+            }
+            if (read != raw.length) {
+                throw new IOException("Truncated block " + block + " in " + path);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt block " + block + " in " + path, e);
+        } finally {
+            inflater.end();
+        }
+        try {
+            return Arrays.stream(objectMapper.readValue(raw, ArchivedMessage[].class))
+                    .map(ArchivedMessage::toMessage)
+                    .toList();
+        } catch (JacksonException e) {
+            throw new IOException("Unreadable block " + block + " in " + path, e);
+        }
+    }
+
+    // Every message, oldest first
+    List<Message> readAll(ObjectMapper objectMapper) throws IOException {
+        List<Message> all = new ArrayList<>((int) messageCount);
+        for (int block = 0; block < blockCount(); block++) {
+            all.addAll(readBlock(block, objectMapper));
+        }
+        return all;
+    }
+
+    // Whether this is still the file at path(), by the attributes read from it now
+    boolean isCurrent(BasicFileAttributes attributes) {
+        return Objects.equals(fileKey, attributes.fileKey())
+                && modified.equals(attributes.lastModifiedTime())
+                && data.capacity() == attributes.size();
+    }
+
+    int blockCount() {
+        return blockCounts.length;
+    }
+
+    int blockSize(int block) {
+        return blockCounts[block];
+    }
+
+    long blockFirstMillis(int block) {
+        return blockFirstMillis[block];
+    }
+
+    long firstMillis() {
+        return blockFirstMillis[0];
+    }
+
+    long messageCount() {
+        return messageCount;
+    }
+
+    OffsetDateTime lastTimestamp() {
+        return lastTimestamp;
+    }
+
+    String lastId() {
+        return lastId;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    static long millis(Message message) {
+        return message.getTimestamp().toInstant().toEpochMilli();
+    }
+
+    private static byte[] deflate(Deflater deflater, byte[] raw) {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeFully(FileChannel channel, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -2,10 +2,11 @@ package com.chatify.backend.Service;
 
 import com.chatify.backend.DTO.ChatMessageRequest;
 import com.chatify.backend.DTO.EditMessageRequest;
+import com.chatify.backend.DTO.MessageHistoryResponse;
 import com.chatify.backend.Entity.ChatRoom;
 import com.chatify.backend.Entity.Message;
-import com.chatify.backend.Entity.RoomMember;
 import com.chatify.backend.Enum.MessageType;
+import com.chatify.backend.Event.RoomMembershipChangedEvent;
 import com.chatify.backend.Exception.ResourceNotFoundException;
 import com.chatify.backend.Exception.UnauthorizedException;
 import com.chatify.backend.Repository.ChatRoomRepository;
@@ -13,9 +14,12 @@ import com.chatify.backend.Repository.MessageRepository;
 import com.chatify.backend.Repository.RoomMemberRepository;
 import com.chatify.backend.Repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
@@ -23,13 +27,14 @@ import com.chatify.backend.Entity.User;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 public class MessageService {
 
+    private static final int MAX_HISTORY_LIMIT = 100;
+
     @Autowired
     private MessageRepository messageRepository;
     @Autowired
@@ -44,8 +49,44 @@ public class MessageService {
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    @Autowired
+    private SessionMembershipCache sessionMembershipCache;
+
+    @Autowired
+    private MessageBatchPersister messageBatchPersister;
+
+    @Autowired
+    private RecentMessageCache recentMessageCache;
+
+    @Autowired
+    private UnreadCounterService unreadCounterService;
+
+    @Autowired
+    private RoomActivityService roomActivityService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MessageArchiveService messageArchiveService;
+
     // Save a new message (called by WebSocket controller)
-    @Transactional
+    // Uses the identity cached on the WebSocket session when there is one,
+    // so the steady-state send path does not hit MySQL at all
+    public Message saveMessage(String roomId, String sessionId, String username,
+                               ChatMessageRequest request) {
+        SessionIdentity identity = sessionMembershipCache.get(sessionId);
+        if (identity == null || !identity.getEmail().equals(username)) {
+            return saveMessage(roomId, username, request);
+        }
+
+        if (!identity.canPostTo(roomId)) {
+            throw new UnauthorizedException("User is not a member of this room");
+        }
+        return persist(request, identity.getUserId(), identity.getUsername(), identity.getEmail());
+    }
+
+    // Save a new message, resolving the sender from the database
     public Message saveMessage(String roomId, String username,ChatMessageRequest request) {
 
         User user = userRepository.findByEmail(username).orElseThrow(()->new ResourceNotFoundException("User not Found"));
@@ -57,35 +98,121 @@ public class MessageService {
         if (!isMember) {
             throw new UnauthorizedException("User is not a member of this room");
         }
+        return persist(request, user.getId(), user.getUsername(), user.getEmail());
+    }
 
+    private Message persist(ChatMessageRequest request, Long senderId,
+                            String senderName, String senderEmail) {
         // 2. Map DTO to Entity
         Message message = new Message();
         message.setContent(request.getContent()); // Using the content from DTO
         message.setRoomId(request.getRoomId());
-        message.setSenderId(String.valueOf(user.getId()));
-        message.setSenderName(user.getUsername());
-        message.setSenderEmail(user.getEmail());
+        message.setSenderId(String.valueOf(senderId));
+        message.setSenderName(senderName);
+        message.setSenderEmail(senderEmail);
         // 3. Set metadata
         message.setTimestamp(OffsetDateTime.now());
         message.setEdited(false);
         message.setDeleted(false);
 
-        // 4. Save the ENTITY, not the DTO
-        return messageRepository.save(message);
+        // 4. Save the ENTITY, not the DTO — batched with other senders' messages
+        Message saved = messageBatchPersister.save(message);
+        recentMessageCache.append(saved);
+        unreadCounterService.onMessageSaved(saved.getRoomId(), senderId);
+        roomActivityService.onMessageSaved(saved);
+        return saved;
     }
 
     // Fetch the paginated message history
+    // The first page of a room is usually served from the recent-message buffer;
+    // pages reaching past the oldest message in Mongo continue into the archive
     public Page<Message> getMessages(String roomId, int page, int size)
     {
-        Pageable pageable = PageRequest.of(page, size, Sort.by("timestamp").descending());
-        return messageRepository.findByRoomIdAndIsDeletedFalse(roomId, pageable);
+        Page<Message> hot;
+        if (page == 0 && size <= recentMessageCache.capacity()) {
+            hot = recentMessageCache.firstPage(roomId, size, () ->
+                    messageRepository.findByRoomIdAndIsDeletedFalse(roomId,
+                            PageRequest.of(0, recentMessageCache.capacity(),
+                                    Sort.by("timestamp").descending())));
+        } else {
+            Pageable pageable = PageRequest.of(page, size, Sort.by("timestamp").descending());
+            hot = messageRepository.findByRoomIdAndIsDeletedFalse(roomId, pageable);
+        }
+
+        long archived = messageArchiveService.count(roomId);
+        if (archived == 0) {
+            return hot;
+        }
+        List<Message> content = new ArrayList<>(hot.getContent());
+        if (content.size() < size) {
+            if (content.isEmpty()) {
+                long skip = Math.max(0, (long) page * size - hot.getTotalElements());
+                content.addAll(messageArchiveService.read(roomId, skip, size));
+            } else {
+                Message oldest = content.get(content.size() - 1);
+                content.addAll(messageArchiveService.readBefore(roomId,
+                        oldest.getTimestamp(), oldest.getId(), size - content.size()));
+            }
+        }
+        return new PageImpl<>(content, PageRequest.of(page, size, Sort.by("timestamp").descending()),
+                hot.getTotalElements() + archived);
+    }
+
+    // Fetch history older than the cursor — no count query, no skip
+    public MessageHistoryResponse getMessageHistory(String roomId, String before, int limit) {
+        MessageCursor cursor = before == null || before.isBlank() ? null : MessageCursor.decode(before);
+        int pageSize = Math.max(1, Math.min(limit, MAX_HISTORY_LIMIT));
+
+        Slice<Message> slice = messageRepository.findHistoryBefore(
+                roomId,
+                cursor == null ? null : cursor.timestamp(),
+                cursor == null ? null : cursor.messageId(),
+                pageSize);
+
+        List<Message> messages = slice.getContent();
+        boolean hasMore = slice.hasNext();
+
+        // Mongo ran out before the page filled up: carry on into the archive
+        if (!hasMore && messages.size() < pageSize && messageArchiveService.count(roomId) > 0) {
+            MessageCursor from = messages.isEmpty() ? cursor : MessageCursor.of(messages.get(messages.size() - 1));
+            int wanted = pageSize - messages.size();
+            List<Message> archived = messageArchiveService.readBefore(roomId,
+                    from == null ? null : from.timestamp(),
+                    from == null ? null : from.messageId(),
+                    wanted + 1);
+
+            hasMore = archived.size() > wanted;
+            List<Message> combined = new ArrayList<>(messages);
+            combined.addAll(archived.subList(0, Math.min(wanted, archived.size())));
+            messages = combined;
+        }
+
+        String nextCursor = hasMore && !messages.isEmpty()
+                ? MessageCursor.of(messages.get(messages.size() - 1)).encode()
+                : null;
+
+        return MessageHistoryResponse.builder()
+                .messages(messages)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
     }
 
     @Transactional
-    public void deleteMessage(String messageId, String requesterEmail) {
+    public void deleteMessage(String roomId, String messageId, String requesterEmail) {
         // 1. Find the message in MongoDB
-        Message message = messageRepository.findById(messageId)
-                .orElseThrow(() -> new ResourceNotFoundException("Message not found"));
+        Message message = messageRepository.findById(messageId).orElse(null);
+        if (message == null) {
+            // Moved into the archive by now: recorded on top of its segment
+            Message archived = findArchived(roomId, messageId);
+            if (!archived.getSenderEmail().equals(requesterEmail)) {
+                throw new UnauthorizedException("You can only delete your own messages");
+            }
+            if (!archived.isDeleted()) {
+                roomActivityService.onMessageChanged(messageArchiveService.delete(archived));
+            }
+            return;
+        }
 
         // 2. Security Check: Compare the requester's identity with the sender's identity
         // If you store sender email in 'senderId', use that; otherwise, fetch the user ID.
@@ -94,18 +221,37 @@ public class MessageService {
         }
 
         // 3. Perform Soft Delete
+        boolean alreadyDeleted = message.isDeleted();
         message.setDeleted(true);
+        if (!alreadyDeleted) {
+            // Starts the grace period after which MessagePurgeService removes it for good
+            message.setDeletedAt(OffsetDateTime.now());
+        }
 
         // 4. Save the update to MongoDB
         messageRepository.save(message);
+        if (!alreadyDeleted) {
+            recentMessageCache.remove(message.getRoomId(), message.getId());
+            roomActivityService.onMessageChanged(message);
+        }
     }
 
     // Edit a message
     @Transactional
-    public Message editMessage(String messageId, String requesterId,
+    public Message editMessage(String roomId, String messageId, String requesterId,
                                String newContent) {
-        Message message = messageRepository.findById(messageId)
-                .orElseThrow(() -> new ResourceNotFoundException("Message not found"));
+        Message message = messageRepository.findById(messageId).orElse(null);
+        if (message == null) {
+            Message archived = findArchived(roomId, messageId);
+            if (!archived.getSenderEmail().equals(requesterId)) {
+                throw new UnauthorizedException("You can only edit your own messages");
+            }
+            Message edited = messageArchiveService.edit(archived, newContent);
+            if (!edited.isDeleted()) {
+                roomActivityService.onMessageChanged(edited);
+            }
+            return edited;
+        }
         if (!message.getSenderEmail().equals(requesterId)) {
             throw new UnauthorizedException("You can only edit your own messages");
         }
@@ -113,31 +259,18 @@ public class MessageService {
         message.setEdited(true);
         message.setEditedAt(OffsetDateTime.now());
         Message saved = messageRepository.save(message);
+        if (!saved.isDeleted()) {
+            recentMessageCache.replace(saved);
+            roomActivityService.onMessageChanged(saved);
+        }
         return saved;
     }
 
-    @Transactional(readOnly = true)
-    public List<User> getRoomMembers(String roomId) {
-        // 1. Find all RoomMember records for this room
-        try {
-            // 1. Convert String to Long correctly (NEVER use Long.getLong)
-            Long roomLongId = Long.parseLong(roomId);
-
-            // 2. Find all membership records for this room
-            // NOTE: Ensure your repository method is findByRoomId(Long roomId)
-            // or findByRoom_Id(Long roomId) depending on your repo setup
-            List<RoomMember> memberships = roomMemberRepository.findByRoomId(roomLongId);
-
-            // 3. Just extract the User object from each membership
-            return memberships.stream()
-                    .map(RoomMember::getUser) // This gets the actual User entity
-                    .collect(Collectors.toList());
-
-        } catch (NumberFormatException e) {
-            // Handle case where roomId isn't a valid number
-            return Collections.emptyList();
-        }
+    private Message findArchived(String roomId, String messageId) {
+        return messageArchiveService.findById(roomId, messageId)
+                .orElseThrow(() -> new ResourceNotFoundException("Message not found"));
     }
+
     @Transactional
     public void removeMember(String roomId, String targetUserId, String requesterEmail) {
         // 1. Get requester user info
@@ -167,11 +300,12 @@ public class MessageService {
         msg.setContent(target.getUsername() + " was removed by " + requester.getUsername());
         msg.setType(MessageType.SYSTEM);
         msg.setTimestamp(OffsetDateTime.now());
-        messageRepository.save(msg);
+        recentMessageCache.append(messageRepository.save(msg));
         // 4. Broadcast to WebSocket so everyone currently in the room sees it immediately
         messagingTemplate.convertAndSend("/topic/room/" + roomId, msg);
         // 5. Delete the membership
         roomMemberRepository.deleteByRoomIdAndUserId(Long.parseLong(roomId), Long.parseLong(targetUserId));
+        eventPublisher.publishEvent(RoomMembershipChangedEvent.left(room.getId(), targetId));
         messagingTemplate.convertAndSend("/topic/user/" + targetUserId + "/kicked", roomId);
 
     }
@@ -0,0 +1,436 @@
+package com.chatify.backend.Service;
+
+import com.chatify.backend.Cluster.ClusterFanout;
+import com.chatify.backend.DTO.PresenceDelta;
+import com.chatify.backend.Repository.RoomMemberRepository;
+import com.chatify.backend.Repository.UserRoom;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Online/offline presence from WebSocket sessions.
+ * A user is online while at least one of their sessions, on any node, is
+ * open and has been heard from recently (any frame, heartbeats included).
+ * Per-user session sets live in lock-striped maps so connects of different
+ * users rarely contend. Changes are not broadcast one by one: they are
+ * collected and sent as one delta per room every few hundred milliseconds,
+ * and a user who flaps back to the state last announced is not sent at all.
+ * An idle session is only marked stale, not forgotten: the next frame it
+ * sends counts it as online again.
+ *
+ * Across the cluster, each node relays only whether a user is online on it
+ * (when that flips, plus a full snapshot every sync interval). Every node
+ * keeps the same cluster-wide view and announces to its own subscribers;
+ * presence deltas are not relayed as broadcasts, so closing one of two
+ * sessions on different nodes announces nothing. A node that stops sending
+ * snapshots is dropped after three intervals.
+ */
+@Service
+@Slf4j
+public class PresenceService {
+
+    private static final int STRIPES = 64;   // power of two
+    private static final String PRESENCE_TOPIC = "/topic/room/%s/presence";
+    private static final String CHANGED_EVENT = "presence-changed";
+    private static final String SNAPSHOT_EVENT = "presence-snapshot";
+    private static final int MISSED_SNAPSHOTS = 3;
+
+    @Autowired
+    private SessionMembershipCache sessionMembershipCache;
+
+    @Autowired
+    private RoomMemberIndex roomMemberIndex;
+
+    @Autowired
+    private RoomMemberRepository roomMemberRepository;
+
+    @Autowired
+    private ClusterFanout clusterFanout;
+
+    // Lazy: this service is reachable from the inbound interceptor, which the
+    // broker configuration that builds the template depends on
+    @Autowired
+    @Lazy
+    private SimpMessagingTemplate messagingTemplate;
+
+    // Sessions silent for longer than this no longer count (missed heartbeats)
+    @Value("${chatify.presence.idle-timeout-ms:60000}")
+    private long idleTimeoutMs;
+
+    @Value("${chatify.presence.sync-interval-ms:30000}")
+    private long syncIntervalMs;
+
+    private static final class SessionPresence {
+        final Long userId;
+        final SessionIdentity identity;
+        volatile long lastSeen = System.currentTimeMillis();
+        // Reaped for silence; still open, but not in the user's session set
+        volatile boolean stale;   // written under the stripe's monitor
+
+        SessionPresence(Long userId, SessionIdentity identity) {
+            this.userId = userId;
+            this.identity = identity;
+        }
+    }
+
+    // Users online on another node, as that node last relayed them
+    private static final class RemoteNode {
+        final Set<Long> users = new HashSet<>();
+        long lastHeard = System.currentTimeMillis();
+    }
+
+    // sessionId -> presence of that session
+    private final ConcurrentHashMap<String, SessionPresence> sessions = new ConcurrentHashMap<>();
+
+    // stripe -> userId -> open sessionIds; guarded by the stripe's own monitor
+    @SuppressWarnings("unchecked")
+    private final Map<Long, Set<String>>[] stripes = new HashMap[STRIPES];
+
+    // nodeId -> users online there; guarded by itself
+    private final Map<String, RemoteNode> remoteNodes = new HashMap<>();
+    // userId -> number of other nodes they are online on; guarded by remoteNodes
+    private final Map<Long, Integer> remoteOnline = new HashMap<>();
+
+    // Users whose state may have changed since the last broadcast, with the
+    // rooms to tell; an empty set when they are only known from another node
+    private final ConcurrentHashMap<Long, Set<String>> pending = new ConcurrentHashMap<>();
+
+    // Users whose "online" has been broadcast (absent = announced offline or never seen)
+    private final Set<Long> announcedOnline = ConcurrentHashMap.newKeySet();
+
+    public PresenceService() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new HashMap<>();
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        clusterFanout.onEvent(CHANGED_EVENT, this::onRemoteChange);
+        clusterFanout.onEvent(SNAPSHOT_EVENT, this::onRemoteSnapshot);
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        String sessionId = StompHeaderAccessor.wrap(event.getMessage()).getSessionId();
+        SessionIdentity identity = sessionMembershipCache.get(sessionId);
+        if (identity != null) {
+            connect(sessionId, identity);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        disconnect(event.getSessionId());
+    }
+
+    // Any inbound frame of the session, heartbeats included
+    public void touch(String sessionId) {
+        if (sessionId == null) return;
+        SessionPresence session = sessions.get(sessionId);
+        if (session == null) return;
+        session.lastSeen = System.currentTimeMillis();
+        if (session.stale) {
+            revive(sessionId, session);
+        }
+    }
+
+    // Online on any node of the cluster
+    public boolean isOnline(Long userId) {
+        Map<Long, Set<String>> stripe = stripeOf(userId);
+        synchronized (stripe) {
+            if (stripe.containsKey(userId)) return true;
+        }
+        synchronized (remoteNodes) {
+            return remoteOnline.containsKey(userId);
+        }
+    }
+
+    // Members of a room that are online, taking each stripe's lock once
+    public List<Long> onlineIn(String roomId) {
+        Map<Integer, List<Long>> byStripe = new HashMap<>();
+        for (Long userId : roomMemberIndex.members(roomId)) {
+            byStripe.computeIfAbsent(stripeIndex(userId), i -> new ArrayList<>()).add(userId);
+        }
+
+        List<Long> online = new ArrayList<>();
+        List<Long> elsewhere = new ArrayList<>();
+        byStripe.forEach((index, userIds) -> {
+            Map<Long, Set<String>> stripe = stripes[index];
+            synchronized (stripe) {
+                for (Long userId : userIds) {
+                    (stripe.containsKey(userId) ? online : elsewhere).add(userId);
+                }
+            }
+        });
+        synchronized (remoteNodes) {
+            for (Long userId : elsewhere) {
+                if (remoteOnline.containsKey(userId)) online.add(userId);
+            }
+        }
+        return online;
+    }
+
+    void connect(String sessionId, SessionIdentity identity) {
+        Long userId = identity.getUserId();
+        sessions.put(sessionId, new SessionPresence(userId, identity));
+
+        boolean cameOnline;
+        Map<Long, Set<String>> stripe = stripeOf(userId);
+        synchronized (stripe) {
+            Set<String> userSessions = stripe.computeIfAbsent(userId, id -> new HashSet<>());
+            cameOnline = userSessions.isEmpty();
+            userSessions.add(sessionId);
+        }
+        if (cameOnline) {
+            changedHere(userId, identity.getRoomIds(), true);
+        }
+    }
+
+    void disconnect(String sessionId) {
+        SessionPresence session = sessions.remove(sessionId);
+        if (session == null) return;
+
+        boolean wentOffline = false;
+        Map<Long, Set<String>> stripe = stripeOf(session.userId);
+        synchronized (stripe) {
+            Set<String> userSessions = stripe.get(session.userId);
+            if (userSessions != null && userSessions.remove(sessionId) && userSessions.isEmpty()) {
+                stripe.remove(session.userId);
+                wentOffline = true;
+            }
+        }
+        if (wentOffline) {
+            changedHere(session.userId, session.identity.getRoomIds(), false);
+        }
+    }
+
+    // Sessions that stopped sending frames (and heartbeats) stop counting;
+    // they stay known so that a late frame can bring them back
+    @Scheduled(fixedDelayString = "${chatify.presence.reap-interval-ms:15000}")
+    public void reapIdleSessions() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMs;
+        sessions.forEach((sessionId, session) -> {
+            if (!session.stale && session.lastSeen < cutoff) {
+                markStale(sessionId, session);
+            }
+        });
+    }
+
+    private void markStale(String sessionId, SessionPresence session) {
+        boolean wentOffline = false;
+        Map<Long, Set<String>> stripe = stripeOf(session.userId);
+        synchronized (stripe) {
+            // Re-checked under the lock: a frame may have arrived since the scan
+            if (session.stale || session.lastSeen >= System.currentTimeMillis() - idleTimeoutMs) return;
+            session.stale = true;
+            Set<String> userSessions = stripe.get(session.userId);
+            if (userSessions != null && userSessions.remove(sessionId) && userSessions.isEmpty()) {
+                stripe.remove(session.userId);
+                wentOffline = true;
+            }
+        }
+        if (wentOffline) {
+            changedHere(session.userId, session.identity.getRoomIds(), false);
+        }
+    }
+
+    private void revive(String sessionId, SessionPresence session) {
+        boolean cameOnline;
+        Map<Long, Set<String>> stripe = stripeOf(session.userId);
+        synchronized (stripe) {
+            // Closed meanwhile, or revived by another frame
+            if (!session.stale || sessions.get(sessionId) != session) return;
+            session.stale = false;
+            Set<String> userSessions = stripe.computeIfAbsent(session.userId, id -> new HashSet<>());
+            cameOnline = userSessions.isEmpty();
+            userSessions.add(sessionId);
+        }
+        if (cameOnline) {
+            changedHere(session.userId, session.identity.getRoomIds(), true);
+        }
+    }
+
+    // This node's own state for the user flipped: tell the other nodes, and
+    // recheck the cluster-wide state on the next broadcast
+    private void changedHere(Long userId, Set<String> roomIds, boolean online) {
+        pending.put(userId, roomIds);
+        clusterFanout.publishEvent(CHANGED_EVENT, (clusterFanout.getNodeId() + ":" + userId + ":" + (online ? "1" : "0"))
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    // "nodeId:userId:1|0"
+    private void onRemoteChange(byte[] payload) {
+        String[] parts = new String(payload, StandardCharsets.UTF_8).split(":");
+        Long userId = Long.valueOf(parts[1]);
+        synchronized (remoteNodes) {
+            RemoteNode node = remoteNodes.computeIfAbsent(parts[0], id -> new RemoteNode());
+            node.lastHeard = System.currentTimeMillis();
+            if ("1".equals(parts[2])) {
+                addRemote(node, userId);
+            } else {
+                removeRemote(node, userId);
+            }
+        }
+        pending.putIfAbsent(userId, Set.of());
+    }
+
+    // "nodeId:userId,userId,..." — everyone online on that node
+    private void onRemoteSnapshot(byte[] payload) {
+        String text = new String(payload, StandardCharsets.UTF_8);
+        int colon = text.indexOf(':');
+        Set<Long> users = new HashSet<>();
+        for (String userId : text.substring(colon + 1).split(",")) {
+            if (!userId.isEmpty()) users.add(Long.valueOf(userId));
+        }
+
+        List<Long> changed = new ArrayList<>();
+        synchronized (remoteNodes) {
+            RemoteNode node = remoteNodes.computeIfAbsent(text.substring(0, colon), id -> new RemoteNode());
+            node.lastHeard = System.currentTimeMillis();
+            for (Long userId : List.copyOf(node.users)) {
+                if (!users.contains(userId)) {
+                    removeRemote(node, userId);
+                    changed.add(userId);
+                }
+            }
+            for (Long userId : users) {
+                if (addRemote(node, userId)) changed.add(userId);
+            }
+        }
+        changed.forEach(userId -> pending.putIfAbsent(userId, Set.of()));
+    }
+
+    // Caller holds remoteNodes
+    private boolean addRemote(RemoteNode node, Long userId) {
+        if (!node.users.add(userId)) return false;
+        remoteOnline.merge(userId, 1, Integer::sum);
+        return true;
+    }
+
+    // Caller holds remoteNodes
+    private void removeRemote(RemoteNode node, Long userId) {
+        if (node.users.remove(userId)) {
+            remoteOnline.computeIfPresent(userId, (id, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    // Relays everyone online here, which repairs lost change events and tells
+    // nodes that joined since; forgets nodes that have stopped doing the same
+    @Scheduled(fixedDelayString = "${chatify.presence.sync-interval-ms:30000}")
+    public void syncCluster() {
+        StringJoiner users = new StringJoiner(",", clusterFanout.getNodeId() + ":", "");
+        for (Map<Long, Set<String>> stripe : stripes) {
+            synchronized (stripe) {
+                stripe.keySet().forEach(userId -> users.add(String.valueOf(userId)));
+            }
+        }
+        clusterFanout.publishEvent(SNAPSHOT_EVENT, users.toString().getBytes(StandardCharsets.UTF_8));
+
+        long cutoff = System.currentTimeMillis() - MISSED_SNAPSHOTS * syncIntervalMs;
+        List<Long> dropped = new ArrayList<>();
+        synchronized (remoteNodes) {
+            remoteNodes.entrySet().removeIf(entry -> {
+                RemoteNode node = entry.getValue();
+                if (node.lastHeard >= cutoff) return false;
+                log.info("Node {} stopped relaying presence, dropping its {} users", entry.getKey(), node.users.size());
+                for (Long userId : List.copyOf(node.users)) {
+                    removeRemote(node, userId);
+                    dropped.add(userId);
+                }
+                return true;
+            });
+        }
+        dropped.forEach(userId -> pending.putIfAbsent(userId, Set.of()));
+    }
+
+    @Scheduled(fixedDelayString = "${chatify.presence.broadcast-interval-ms:250}")
+    public void broadcast() {
+        Map<Long, Set<String>> changes = new HashMap<>();
+        for (Long userId : pending.keySet()) {
+            Set<String> roomIds = pending.remove(userId);
+            if (roomIds == null) continue;
+            // Announced from the cluster-wide state; a flap that ends where it
+            // started, or a session closing while another node still has one,
+            // has nothing to announce
+            boolean online = isOnline(userId);
+            boolean changed = online ? announcedOnline.add(userId) : announcedOnline.remove(userId);
+            if (changed) changes.put(userId, roomIds);
+        }
+        if (changes.isEmpty()) return;
+
+        Map<Long, Set<String>> roomsOf = roomsOf(changes);
+        Map<String, PresenceDelta> deltas = new HashMap<>();
+        changes.keySet().forEach(userId -> {
+            boolean online = announcedOnline.contains(userId);
+            for (String roomId : roomsOf.getOrDefault(userId, Set.of())) {
+                PresenceDelta delta = deltas.computeIfAbsent(roomId, id ->
+                        new PresenceDelta(id, new ArrayList<>(), new ArrayList<>()));
+                (online ? delta.getOnline() : delta.getOffline()).add(userId);
+            }
+        });
+
+        // Every node announces to its own subscribers, so the delta stays local
+        deltas.forEach((roomId, delta) ->
+                messagingTemplate.convertAndSend(PRESENCE_TOPIC.formatted(roomId), delta, localOnly()));
+        if (!deltas.isEmpty()) {
+            log.debug("Broadcast presence deltas to {} rooms", deltas.size());
+        }
+    }
+
+    // Rooms of local users come from their session; users only known from
+    // another node are looked up in one query
+    private Map<Long, Set<String>> roomsOf(Map<Long, Set<String>> changes) {
+        Map<Long, Set<String>> rooms = new HashMap<>();
+        List<Long> unknown = new ArrayList<>();
+        changes.forEach((userId, roomIds) -> {
+            if (roomIds.isEmpty()) unknown.add(userId);
+            else rooms.put(userId, roomIds);
+        });
+        if (!unknown.isEmpty()) {
+            for (UserRoom membership : roomMemberRepository.findRoomIdsByUserIds(unknown)) {
+                rooms.computeIfAbsent(membership.getUserId(), id -> new HashSet<>())
+                        .add(String.valueOf(membership.getRoomId()));
+            }
+        }
+        return rooms;
+    }
+
+    private static MessageHeaders localOnly() {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setHeader(ClusterFanout.LOCAL_ONLY_HEADER, true);
+        accessor.setLeaveMutable(true);
+        return accessor.getMessageHeaders();
+    }
+
+    private Map<Long, Set<String>> stripeOf(Long userId) {
+        return stripes[stripeIndex(userId)];
+    }
+
+    private static int stripeIndex(Long userId) {
+        return Long.hashCode(userId * 0x9E3779B97F4A7C15L) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,412 @@
+package com.chatify.backend.Service;
+
+import com.chatify.backend.Cluster.ClusterFanout;
+import com.chatify.backend.DTO.SeenByResponse;
+import com.chatify.backend.Entity.Message;
+import com.chatify.backend.Entity.ReadReceipts;
+import com.chatify.backend.Enum.ChatRoomType;
+import com.chatify.backend.Event.RoomMembershipChangedEvent;
+import com.chatify.backend.Exception.BadRequestException;
+import com.chatify.backend.Exception.ResourceNotFoundException;
+import com.chatify.backend.Repository.ChatRoomRepository;
+import com.chatify.backend.Repository.MessageRepository;
+import com.chatify.backend.Repository.ReadReceiptsRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * "Seen by" receipts for GROUP rooms.
+ * In memory each member of a room gets a small ordinal, and the room keeps
+ * only the highest message each member has read. Members that stopped at the
+ * same message share one CompactBitmap, so a room where most people are
+ * caught up is a handful of bitmaps rather than an entry per (message, user).
+ * "Who has seen X" is the union of the bitmaps at or after X's position,
+ * less anyone who has left the room since.
+ *
+ * Ordinals never leave the node. The room's document keeps one field per
+ * member, and a flush moves each member forward with its own guarded $set,
+ * so nodes cannot overwrite each other's reads. Flushed reads are relayed to
+ * the other nodes. At most max-rooms rooms are held (LRU), and a room is
+ * reloaded from Mongo after reload-ms, which also covers a lost relay.
+ */
+@Service
+@Slf4j
+public class ReadReceiptService {
+
+    private static final String FLUSHED_EVENT = "receipts-flushed";
+
+    @Autowired
+    private ReadReceiptsRepository readReceiptsRepository;
+
+    @Autowired
+    private ChatRoomRepository chatRoomRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private MessageArchiveService messageArchiveService;
+
+    @Autowired
+    private RoomMemberIndex roomMemberIndex;
+
+    @Autowired
+    private ClusterFanout clusterFanout;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${chatify.receipts.max-rooms:10000}")
+    private int maxRooms;
+
+    @Value("${chatify.receipts.reload-ms:300000}")
+    private long reloadMs;
+
+    // roomId -> receipts, least recently used first; guarded by its own monitor
+    private Map<String, RoomReceipts> rooms;
+
+    // roomId -> changes not yet written to Mongo; only touched inside compute
+    private final ConcurrentHashMap<String, PendingRoom> pending = new ConcurrentHashMap<>();
+
+    // Same (timestamp, id) order as message history
+    private record ReadPosition(long millis, String messageId) implements Comparable<ReadPosition> {
+
+        static ReadPosition of(Message message) {
+            return new ReadPosition(message.getTimestamp().toInstant().toEpochMilli(), message.getId());
+        }
+
+        static ReadPosition of(OffsetDateTime timestamp, String messageId) {
+            return new ReadPosition(timestamp.toInstant().toEpochMilli(), messageId);
+        }
+
+        static ReadPosition max(ReadPosition a, ReadPosition b) {
+            return a.compareTo(b) >= 0 ? a : b;
+        }
+
+        @Override
+        public int compareTo(ReadPosition other) {
+            int byTime = Long.compare(millis, other.millis);
+            return byTime != 0 ? byTime : messageId.compareTo(other.messageId);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        rooms = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RoomReceipts> eldest) {
+                return size() > maxRooms;
+            }
+        };
+        clusterFanout.onEvent(FLUSHED_EVENT, this::onFlushedElsewhere);
+    }
+
+    // Called from markRead with the message the user has read up to
+    public void onRead(String roomId, Long userId, Message lastRead) {
+        RoomReceipts receipts = receipts(roomId);
+        if (!receipts.tracked) return;
+        ReadPosition position = ReadPosition.of(lastRead);
+        if (receipts.advance(userId, position)) {
+            pending.compute(roomId, (id, room) -> (room == null ? new PendingRoom() : room).read(userId, position));
+        }
+    }
+
+    public SeenByResponse seenBy(String roomId, String messageId) {
+        RoomReceipts receipts = receipts(roomId);
+        if (!receipts.tracked) {
+            throw new BadRequestException("Read receipts are only kept for group rooms");
+        }
+        // Receipts outlive archival, so an archived message still has readers
+        Message message = messageRepository.findById(messageId)
+                .filter(found -> roomId.equals(found.getRoomId()))
+                .or(() -> messageArchiveService.findById(roomId, messageId))
+                .orElseThrow(() -> new ResourceNotFoundException("Message not found"));
+
+        Set<Long> members = roomMemberIndex.members(roomId);
+        List<Long> readers = receipts.readersFrom(ReadPosition.of(message));
+        readers.removeIf(userId -> !members.contains(userId)
+                || String.valueOf(userId).equals(message.getSenderId()));
+        return SeenByResponse.builder()
+                .messageId(messageId)
+                .count(readers.size())
+                .userIds(readers)
+                .build();
+    }
+
+    // A member who leaves takes their receipt with them
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMembershipChanged(RoomMembershipChangedEvent event) {
+        if (event.isJoined()) return;
+        String roomId = String.valueOf(event.getRoomId());
+        RoomReceipts receipts = cached(roomId);
+        if (receipts != null && !receipts.tracked) return;
+        if (receipts != null) receipts.forget(event.getUserId());
+        if (event.isRelayed()) return;   // The node that removed the member writes it
+        pending.compute(roomId, (id, room) -> (room == null ? new PendingRoom() : room).depart(event.getUserId()));
+    }
+
+    private RoomReceipts cached(String roomId) {
+        synchronized (rooms) {
+            return rooms.get(roomId);
+        }
+    }
+
+    private RoomReceipts receipts(String roomId) {
+        RoomReceipts cached = cached(roomId);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt < reloadMs) {
+            return cached;
+        }
+        // Loaded outside the lock; Mongo must not hold up other rooms
+        RoomReceipts loaded = load(roomId);
+        synchronized (rooms) {
+            RoomReceipts current = rooms.get(roomId);
+            if (current != null && current != cached) return current;   // Someone else reloaded it
+            rooms.put(roomId, loaded);
+        }
+        return loaded;
+    }
+
+    private RoomReceipts load(String roomId) {
+        if (!isGroupRoom(roomId)) return new RoomReceipts(false);
+        RoomReceipts receipts = new RoomReceipts(true);
+
+        readReceiptsRepository.findById(roomId).ifPresent(document -> {
+            if (document.getReaders() != null) {
+                document.getReaders().forEach((userId, read) -> receipts.advance(
+                        Long.valueOf(userId), ReadPosition.of(read.getTimestamp(), read.getMessageId())));
+            }
+            if (document.getMembers() != null && document.getPositions() != null) {
+                convertOrdinals(roomId, document, receipts);
+            }
+        });
+        // Reads of this node that are not in Mongo yet
+        pending.computeIfPresent(roomId, (id, room) -> {
+            room.reads.forEach(receipts::advance);
+            room.departed.forEach(receipts::forget);
+            return room;
+        });
+        return receipts;
+    }
+
+    // A document in the earlier layout: its reads are rewritten as member fields
+    private void convertOrdinals(String roomId, ReadReceipts document, RoomReceipts receipts) {
+        Map<Long, ReadPosition> reads = new HashMap<>();
+        for (ReadReceipts.Position stored : document.getPositions()) {
+            ReadPosition position = ReadPosition.of(stored.getTimestamp(), stored.getMessageId());
+            CompactBitmap.fromBytes(stored.getReaders()).forEach(ordinal ->
+                    reads.merge(document.getMembers().get(ordinal), position, ReadPosition::max));
+        }
+        reads.forEach(receipts::advance);
+        pending.compute(roomId, (id, room) -> {
+            if (room == null) room = new PendingRoom();
+            reads.forEach(room::read);
+            room.convert = true;
+            return room;
+        });
+    }
+
+    private boolean isGroupRoom(String roomId) {
+        try {
+            return chatRoomRepository.findById(Long.parseLong(roomId))
+                    .map(room -> room.getType() == ChatRoomType.GROUP)
+                    .orElse(false);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chatify.receipts.flush-interval-ms:5000}")
+    public void flush() {
+        if (pending.isEmpty()) return;
+
+        // Ordered: departures go before reads, and each room exists before its guarded updates
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, ReadReceipts.class);
+        Map<String, PendingRoom> batch = new HashMap<>();
+        Date now = new Date();
+
+        for (String roomId : pending.keySet()) {
+            // remove() hands the changes over; later ones start a new entry
+            PendingRoom room = pending.remove(roomId);
+            if (room == null) continue;
+            batch.put(roomId, room);
+
+            if (!room.departed.isEmpty() || room.convert) {
+                Update update = new Update().set("updatedAt", now);
+                room.departed.forEach(userId -> update.unset("readers." + userId));
+                if (room.convert) update.unset("members").unset("positions");
+                bulk.updateOne(Query.query(Criteria.where("_id").is(roomId)), update);
+            }
+            if (!room.reads.isEmpty()) {
+                bulk.upsert(Query.query(Criteria.where("_id").is(roomId)), new Update().setOnInsert("updatedAt", now));
+                room.reads.forEach((userId, position) -> bulk.updateOne(
+                        readBefore(roomId, userId, position),
+                        new Update()
+                                .set("readers." + userId, new Document("timestamp", new Date(position.millis()))
+                                        .append("messageId", position.messageId()))
+                                .set("updatedAt", now)));
+            }
+        }
+        if (batch.isEmpty()) return;
+
+        try {
+            bulk.execute();
+            log.debug("Flushed read receipts of {} rooms", batch.size());
+        } catch (RuntimeException e) {
+            // Every operation is guarded or idempotent, so the whole batch is simply retried
+            batch.forEach((roomId, room) -> pending.merge(roomId, room, (later, failed) -> failed.then(later)));
+            log.warn("Read receipt flush failed, re-queued {} rooms: {}", batch.size(), e.getMessage());
+            return;
+        }
+        batch.forEach((roomId, room) -> clusterFanout.publishEvent(FLUSHED_EVENT, room.encode(roomId)));
+    }
+
+    // Matches the room only while the member's stored read is older than `position`
+    private static Query readBefore(String roomId, Long userId, ReadPosition position) {
+        String field = "readers." + userId;
+        Date millis = new Date(position.millis());
+        return Query.query(Criteria.where("_id").is(roomId).orOperator(
+                Criteria.where(field).exists(false),
+                Criteria.where(field + ".timestamp").lt(millis),
+                Criteria.where(field + ".timestamp").is(millis)
+                        .and(field + ".messageId").lt(position.messageId())));
+    }
+
+    // Another node flushed: apply its changes if we hold the room
+    private void onFlushedElsewhere(byte[] payload) {
+        String[] lines = new String(payload, StandardCharsets.UTF_8).split("\n");
+        RoomReceipts receipts = cached(lines[0]);
+        if (receipts == null || !receipts.tracked) return;   // Loaded from Mongo when needed
+        for (int i = 1; i < lines.length; i++) {
+            String[] fields = lines[i].substring(1).split(" ");
+            Long userId = Long.valueOf(fields[0]);
+            if (lines[i].charAt(0) == '-') {
+                receipts.forget(userId);
+            } else {
+                receipts.advance(userId, new ReadPosition(Long.parseLong(fields[1]), fields[2]));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    // Changes of one room since the last flush
+    private static final class PendingRoom {
+
+        final Map<Long, ReadPosition> reads = new HashMap<>();
+        final Set<Long> departed = new HashSet<>();
+        boolean convert;   // Drop the earlier document layout
+
+        PendingRoom read(Long userId, ReadPosition position) {
+            reads.merge(userId, position, ReadPosition::max);
+            return this;
+        }
+
+        PendingRoom depart(Long userId) {
+            reads.remove(userId);
+            departed.add(userId);
+            return this;
+        }
+
+        // This (older, failed) batch followed by what arrived since
+        PendingRoom then(PendingRoom later) {
+            later.departed.forEach(reads::remove);
+            later.reads.forEach(this::read);
+            departed.addAll(later.departed);
+            convert |= later.convert;
+            return this;
+        }
+
+        // "<roomId>" then one line per change: "+<userId> <millis> <messageId>" or "-<userId>"
+        byte[] encode(String roomId) {
+            StringBuilder out = new StringBuilder(roomId);
+            departed.forEach(userId -> out.append("\n-").append(userId));
+            reads.forEach((userId, position) -> out.append("\n+").append(userId)
+                    .append(' ').append(position.millis()).append(' ').append(position.messageId()));
+            return out.toString().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class RoomReceipts {
+
+        final boolean tracked;   // GROUP room; other rooms keep no receipts
+        final long loadedAt = System.currentTimeMillis();
+
+        private final List<Long> members = new ArrayList<>();                      // ordinal -> userId
+        private final Map<Long, Integer> ordinals = new HashMap<>();              // userId -> ordinal
+        private final Map<Integer, ReadPosition> positionOf = new HashMap<>();    // ordinal -> position
+        private final TreeMap<ReadPosition, CompactBitmap> readers = new TreeMap<>();
+
+        RoomReceipts(boolean tracked) {
+            this.tracked = tracked;
+        }
+
+        // Moves the member forward; reads of older messages change nothing
+        synchronized boolean advance(Long userId, ReadPosition position) {
+            Integer ordinal = ordinals.get(userId);
+            if (ordinal == null) {
+                ordinal = members.size();
+                members.add(userId);
+                ordinals.put(userId, ordinal);
+            }
+
+            ReadPosition current = positionOf.get(ordinal);
+            if (current != null) {
+                if (current.compareTo(position) >= 0) return false;
+                clear(ordinal, current);
+            }
+            readers.computeIfAbsent(position, key -> new CompactBitmap()).add(ordinal);
+            positionOf.put(ordinal, position);
+            return true;
+        }
+
+        // The member keeps its ordinal, should it come back
+        synchronized void forget(Long userId) {
+            Integer ordinal = ordinals.get(userId);
+            if (ordinal == null) return;
+            ReadPosition current = positionOf.remove(ordinal);
+            if (current != null) clear(ordinal, current);
+        }
+
+        private void clear(int ordinal, ReadPosition position) {
+            CompactBitmap bitmap = readers.get(position);
+            bitmap.remove(ordinal);
+            if (bitmap.isEmpty()) readers.remove(position);
+        }
+
+        synchronized List<Long> readersFrom(ReadPosition position) {
+            List<Long> userIds = new ArrayList<>();
+            for (CompactBitmap bitmap : readers.tailMap(position, true).values()) {
+                bitmap.forEach(ordinal -> userIds.add(members.get(ordinal)));
+            }
+            return userIds;
+        }
+    }
+}
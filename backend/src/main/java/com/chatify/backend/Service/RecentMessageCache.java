@@ -0,0 +1,249 @@
+package com.chatify.backend.Service;
+
+import com.chatify.backend.Cluster.ClusterFanout;
+import com.chatify.backend.Entity.Message;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/*
+ * Bounded ring buffer of the newest messages per room.
+ * Opening a room almost always asks for the first page of history, which is
+ * exactly what was just broadcast — so that page is served from memory.
+ * Rooms are evicted least-recently-used once maxRooms buffers exist, which
+ * caps memory at roughly maxRooms * perRoom messages.
+ * Every node keeps its own buffers: a change made here tells the other nodes
+ * to drop their copy of the room, and a buffer is only trusted for ttl-ms
+ * after it was loaded, in case such a message was lost.
+ */
+@Service
+public class RecentMessageCache {
+
+    private static final String INVALIDATED_EVENT = "recent-invalidated";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ClusterFanout clusterFanout;
+
+    @Value("${chatify.messages.recent.per-room:50}")
+    private int perRoom;
+
+    @Value("${chatify.messages.recent.max-rooms:10000}")
+    private int maxRooms;
+
+    @Value("${chatify.messages.recent.ttl-ms:30000}")
+    private long ttlMs;
+
+    private Map<String, RoomBuffer> rooms;
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    public void init() {
+        rooms = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RoomBuffer> eldest) {
+                return size() > maxRooms;
+            }
+        };
+        hits = meterRegistry.counter("chatify.messages.recent.hits");
+        misses = meterRegistry.counter("chatify.messages.recent.misses");
+        meterRegistry.gauge("chatify.messages.recent.rooms", this, cache -> cache.roomCount());
+        clusterFanout.onEvent(INVALIDATED_EVENT, payload -> invalidate(new String(payload, StandardCharsets.UTF_8)));
+    }
+
+    public int capacity() {
+        return perRoom;
+    }
+
+    /*
+     * Returns the newest `size` messages of a room, newest first.
+     * On a miss the loader is asked for the newest `capacity()` messages
+     * and the buffer is primed from them.
+     */
+    public Page<Message> firstPage(String roomId, int size, Supplier<Page<Message>> loader) {
+        PageShape page = new PageShape(size);
+        RoomBuffer buffer = buffer(roomId, true);
+
+        Page<Message> cached = buffer.read(page, System.currentTimeMillis() - ttlMs);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        long loadStamp = buffer.beginLoad();
+        Page<Message> loaded = loader.get();
+        buffer.prime(loadStamp, loaded.getContent(), loaded.getTotalElements(), System.currentTimeMillis());
+
+        List<Message> content = loaded.getContent();
+        return page.of(content.subList(0, Math.min(size, content.size())), loaded.getTotalElements());
+    }
+
+    // A new message was persisted (chat or system message)
+    public void append(Message message) {
+        RoomBuffer buffer = buffer(message.getRoomId(), false);
+        if (buffer != null) buffer.append(message);
+        publishInvalidated(message.getRoomId());
+    }
+
+    // An existing message changed its content
+    public void replace(Message message) {
+        RoomBuffer buffer = buffer(message.getRoomId(), false);
+        if (buffer != null) buffer.replace(message);
+        publishInvalidated(message.getRoomId());
+    }
+
+    // A message was soft deleted and no longer shows in history
+    public void remove(String roomId, String messageId) {
+        remove(roomId, List.of(messageId));
+    }
+
+    // Messages left the room's history (deleted or archived)
+    public void remove(String roomId, Collection<String> messageIds) {
+        RoomBuffer buffer = buffer(roomId, false);
+        if (buffer != null) messageIds.forEach(buffer::remove);
+        publishInvalidated(roomId);
+    }
+
+    // The room changed on another node: reload it on next use
+    private void invalidate(String roomId) {
+        RoomBuffer buffer = buffer(roomId, false);
+        if (buffer != null) buffer.invalidate();
+    }
+
+    private void publishInvalidated(String roomId) {
+        clusterFanout.publishEvent(INVALIDATED_EVENT, roomId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private RoomBuffer buffer(String roomId, boolean create) {
+        synchronized (rooms) {
+            RoomBuffer buffer = rooms.get(roomId);
+            if (buffer == null && create) {
+                buffer = new RoomBuffer(perRoom);
+                rooms.put(roomId, buffer);
+            }
+            return buffer;
+        }
+    }
+
+    private int roomCount() {
+        synchronized (rooms) {
+            return rooms.size();
+        }
+    }
+
+    private record PageShape(int size) {
+        Page<Message> of(List<Message> content, long total) {
+            return new PageImpl<>(content,
+                    PageRequest.of(0, size, Sort.by("timestamp").descending()),
+                    total);
+        }
+    }
+
+    /*
+     * Newest-first window of one room. Only trusted once primed from Mongo;
+     * any write seen while a load is in flight invalidates that load, so a
+     * message can never slip in between the query and the prime.
+     */
+    private static class RoomBuffer {
+
+        private final int capacity;
+        private final LinkedList<Message> messages = new LinkedList<>();
+        private long total;            // Non-deleted messages in the room overall
+        private boolean primed;
+        private long primedAt;         // Epoch ms of the load it was primed from
+        private long writeStamp;
+
+        RoomBuffer(int capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized Page<Message> read(PageShape page, long loadedAfter) {
+            // Enough messages buffered, or the buffer already holds the whole room
+            if (!primed || primedAt < loadedAfter
+                    || (messages.size() < page.size() && messages.size() < total)) {
+                return null;
+            }
+            List<Message> content = new ArrayList<>(page.size());
+            Iterator<Message> it = messages.iterator();
+            while (it.hasNext() && content.size() < page.size()) {
+                content.add(it.next());
+            }
+            return page.of(content, total);
+        }
+
+        synchronized long beginLoad() {
+            return writeStamp;
+        }
+
+        synchronized void prime(long loadStamp, List<Message> newest, long totalMessages, long now) {
+            if (loadStamp != writeStamp) return;   // Raced with a write — next read reloads
+            messages.clear();
+            newest.stream().limit(capacity).forEach(messages::addLast);
+            total = totalMessages;
+            primed = true;
+            primedAt = now;
+        }
+
+        // Also spoils a load in flight: it may have read before the change
+        synchronized void invalidate() {
+            writeStamp++;
+            primed = false;
+            messages.clear();
+        }
+
+        synchronized void append(Message message) {
+            writeStamp++;
+            if (!primed) return;
+
+            // Keep newest-first order even if concurrent senders finish out of order
+            ListIterator<Message> it = messages.listIterator();
+            while (it.hasNext()) {
+                if (!it.next().getTimestamp().isAfter(message.getTimestamp())) {
+                    it.previous();
+                    break;
+                }
+            }
+            it.add(message);
+            total++;
+            while (messages.size() > capacity) {
+                messages.removeLast();
+            }
+        }
+
+        synchronized void replace(Message message) {
+            writeStamp++;
+            if (!primed) return;
+            messages.replaceAll(existing ->
+                    existing.getId().equals(message.getId()) ? message : existing);
+        }
+
+        synchronized void remove(String messageId) {
+            writeStamp++;
+            if (!primed) return;
+            messages.removeIf(existing -> existing.getId().equals(messageId));
+            total--;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.chatify.backend.Service;
+
+import com.chatify.backend.Entity.Message;
+import com.chatify.backend.Entity.RoomActivity;
+import com.chatify.backend.Repository.RoomActivityRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Tracks when each room last saw a message, and what that message said.
+ * Every message only touches an in-memory entry for its room; entries are
+ * folded into room_activity with one bulk upsert every few seconds, so a
+ * busy room costs one write per flush instead of one per message. The
+ * preview only ever moves forward in time, and entries whose write failed
+ * go back into the pending map for the next flush.
+ */
+@Service
+@Slf4j
+public class RoomActivityService {
+
+    private static final int SNIPPET_LENGTH = 120;
+    private static final String DELETED_SNIPPET = "This message was deleted";
+
+    @Autowired
+    private RoomActivityRepository roomActivityRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // Newest message of the room since the last flush, plus how many arrived
+    private record Pending(OffsetDateTime lastMessageAt, long messages, String lastMessageId,
+                           String snippet, String senderName) {
+        Pending plus(Pending other) {
+            Pending newest = other.lastMessageAt.isAfter(lastMessageAt) ? other : this;
+            return new Pending(newest.lastMessageAt, messages + other.messages,
+                    newest.lastMessageId, newest.snippet, newest.senderName);
+        }
+
+        // The count was already written; only the preview still has to be
+        Pending withoutMessages() {
+            return new Pending(lastMessageAt, 0, lastMessageId, snippet, senderName);
+        }
+
+        Pending withSnippet(String messageId, String newSnippet) {
+            return messageId.equals(lastMessageId)
+                    ? new Pending(lastMessageAt, messages, lastMessageId, newSnippet, senderName)
+                    : this;
+        }
+    }
+
+    // roomId -> activity not yet written to Mongo
+    private final ConcurrentHashMap<String, Pending> pending = new ConcurrentHashMap<>();
+
+    // Called for every chat message once it is saved
+    public void onMessageSaved(Message message) {
+        pending.merge(message.getRoomId(),
+                new Pending(message.getTimestamp(), 1, message.getId(),
+                        snippet(message.getContent()), message.getSenderName()),
+                Pending::plus);
+    }
+
+    // An edit or delete only matters if it hit the message shown as the preview
+    public void onMessageChanged(Message message) {
+        String newSnippet = message.isDeleted() ? DELETED_SNIPPET : snippet(message.getContent());
+        pending.computeIfPresent(message.getRoomId(),
+                (roomId, activity) -> activity.withSnippet(message.getId(), newSnippet));
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(message.getRoomId())
+                        .and("lastMessageId").is(message.getId())),
+                new Update().set("lastMessageSnippet", newSnippet),
+                RoomActivity.class);
+    }
+
+    // Activity of each room, stored and still pending combined
+    public Map<String, RoomActivity> activity(Collection<String> roomIds) {
+        Map<String, RoomActivity> activity = new HashMap<>();
+        for (RoomActivity stored : roomActivityRepository.findAllById(roomIds)) {
+            activity.put(stored.getRoomId(), stored);
+        }
+        for (String roomId : roomIds) {
+            Pending recent = pending.get(roomId);
+            if (recent == null) continue;
+            RoomActivity stored = activity.get(roomId);
+            long count = recent.messages() + (stored == null ? 0 : stored.getMessageCount());
+            if (stored == null || stored.getLastMessageAt() == null
+                    || recent.lastMessageAt().isAfter(stored.getLastMessageAt())) {
+                activity.put(roomId, new RoomActivity(roomId, recent.lastMessageAt(), count,
+                        recent.lastMessageId(), recent.snippet(), recent.senderName()));
+            } else {
+                stored.setMessageCount(count);
+            }
+        }
+        return activity;
+    }
+
+    // Last message time of each room that has one
+    public Map<String, OffsetDateTime> lastActivity(Collection<String> roomIds) {
+        Map<String, OffsetDateTime> lastActivity = new HashMap<>();
+        activity(roomIds).forEach((roomId, activity) -> {
+            if (activity.getLastMessageAt() != null) {
+                lastActivity.put(roomId, activity.getLastMessageAt());
+            }
+        });
+        return lastActivity;
+    }
+
+    @Scheduled(fixedDelayString = "${chatify.rooms.activity.flush-interval-ms:5000}")
+    public void flush() {
+        // Ordered: each room's document exists before its guarded preview update
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, RoomActivity.class);
+        List<Map.Entry<String, Pending>> batch = new ArrayList<>();
+
+        for (String roomId : pending.keySet()) {
+            // remove() hands over the entry atomically; later messages start a new one
+            Pending activity = pending.remove(roomId);
+            if (activity == null) continue;
+            Date lastMessageAt = Date.from(activity.lastMessageAt().toInstant());
+            bulk.upsert(
+                    Query.query(Criteria.where("_id").is(roomId)),
+                    new Update()
+                            .setOnInsert("lastMessageAt", lastMessageAt)
+                            .setOnInsert("lastMessageId", activity.lastMessageId())
+                            .setOnInsert("lastMessageSnippet", activity.snippet())
+                            .setOnInsert("lastSenderName", activity.senderName())
+                            .inc("messageCount", activity.messages()));
+            // Another node may already have written a newer message
+            bulk.updateOne(
+                    Query.query(Criteria.where("_id").is(roomId).orOperator(
+                            Criteria.where("lastMessageAt").is(null),   // Also matches a missing field
+                            Criteria.where("lastMessageAt").lt(lastMessageAt))),
+                    new Update()
+                            .set("lastMessageAt", lastMessageAt)
+                            .set("lastMessageId", activity.lastMessageId())
+                            .set("lastMessageSnippet", activity.snippet())
+                            .set("lastSenderName", activity.senderName()));
+            batch.add(Map.entry(roomId, activity));
+        }
+        if (batch.isEmpty()) return;
+
+        try {
+            bulk.execute();
+            log.debug("Flushed activity for {} rooms", batch.size());
+        } catch (BulkOperationException e) {
+            // Ordered: everything before the failed operation was applied, nothing after it
+            int failedAt = e.getErrors().isEmpty() ? 0 : e.getErrors().get(0).getIndex();
+            requeue(batch, failedAt);
+            log.warn("Activity flush failed at operation {}, re-queued: {}", failedAt, e.getMessage());
+        } catch (RuntimeException e) {
+            requeue(batch, 0);
+            log.warn("Activity flush failed, re-queued {} rooms: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    // Room i of the batch owns operations 2i (count) and 2i + 1 (preview)
+    private void requeue(List<Map.Entry<String, Pending>> batch, int firstUnapplied) {
+        for (int i = firstUnapplied / 2; i < batch.size(); i++) {
+            Pending activity = batch.get(i).getValue();
+            if (2 * i < firstUnapplied) {
+                activity = activity.withoutMessages();
+            }
+            pending.merge(batch.get(i).getKey(), activity, Pending::plus);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private static String snippet(String content) {
+        if (content == null) return null;
+        return content.length() <= SNIPPET_LENGTH ? content : content.substring(0, SNIPPET_LENGTH) + "…";
+    }
+}
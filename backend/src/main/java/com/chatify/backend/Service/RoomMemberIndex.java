@@ -0,0 +1,68 @@
+package com.chatify.backend.Service;
+
+import com.chatify.backend.Event.RoomMembershipChangedEvent;
+import com.chatify.backend.Repository.RoomMemberRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Member user ids per room, loaded on first use and then kept current from
+ * RoomMembershipChangedEvent, local or relayed from another node. Lets
+ * per-message work (unread counters etc.) find a room's members without a
+ * query per message. Loaded rooms are dropped periodically and read again on
+ * next use, in case a relayed change was lost.
+ */
+@Service
+public class RoomMemberIndex {
+
+    @Autowired
+    private RoomMemberRepository roomMemberRepository;
+
+    private final ConcurrentHashMap<String, Set<Long>> membersByRoom = new ConcurrentHashMap<>();
+
+    public Set<Long> members(String roomId) {
+        return membersByRoom.computeIfAbsent(roomId, this::load);
+    }
+
+    public boolean isMember(String roomId, Long userId) {
+        return members(roomId).contains(userId);
+    }
+
+    private Set<Long> load(String roomId) {
+        Set<Long> members = ConcurrentHashMap.newKeySet();
+        try {
+            members.addAll(roomMemberRepository.findUserIdsByRoomId(Long.parseLong(roomId)));
+        } catch (NumberFormatException e) {
+            // Not a valid room id — nobody is a member
+        }
+        return members;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMembershipChanged(RoomMembershipChangedEvent event) {
+        // computeIfPresent waits for a load of the same room that is in flight,
+        // so a change committed while the load was reading is applied on top of it.
+        // Not loaded and not loading: the next load reads the committed change
+        membersByRoom.computeIfPresent(String.valueOf(event.getRoomId()), (roomId, members) -> {
+            if (event.isJoined()) {
+                members.add(event.getUserId());
+            } else {
+                members.remove(event.getUserId());
+            }
+            return members;
+        });
+    }
+
+    // Fallback for changes whose relayed event never arrived. A load reads
+    // committed rows, so nothing applied since is lost by reloading
+    @Scheduled(initialDelayString = "${chatify.membership.refresh-ms:60000}",
+            fixedDelayString = "${chatify.membership.refresh-ms:60000}")
+    public void evictLoaded() {
+        membersByRoom.clear();
+    }
+}
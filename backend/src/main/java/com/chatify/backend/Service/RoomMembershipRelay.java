@@ -0,0 +1,49 @@
+package com.chatify.backend.Service;
+
+import com.chatify.backend.Cluster.ClusterFanout;
+import com.chatify.backend.Event.RoomMembershipChangedEvent;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Carries membership changes to the other nodes. A join or leave committed
+ * here is relayed once it commits; one relayed from another node is published
+ * again locally, so the session caches and room indexes of every node follow
+ * along exactly as they do for local changes.
+ */
+@Component
+public class RoomMembershipRelay {
+
+    private static final String CHANGED_EVENT = "membership-changed";
+
+    @Autowired
+    private ClusterFanout clusterFanout;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PostConstruct
+    public void init() {
+        clusterFanout.onEvent(CHANGED_EVENT, this::onChangedElsewhere);
+    }
+
+    // After commit only: other nodes must never see a change that rolled back
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMembershipChanged(RoomMembershipChangedEvent event) {
+        if (event.isRelayed()) return;
+        String payload = event.getRoomId() + ":" + event.getUserId() + ":" + (event.isJoined() ? "1" : "0");
+        clusterFanout.publishEvent(CHANGED_EVENT, payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // "<roomId>:<userId>:<1 joined | 0 left>"
+    private void onChangedElsewhere(byte[] payload) {
+        String[] parts = new String(payload, StandardCharsets.UTF_8).split(":");
+        eventPublisher.publishEvent(new RoomMembershipChangedEvent(
+                Long.valueOf(parts[0]), Long.valueOf(parts[1]), "1".equals(parts[2]), true));
+    }
+}
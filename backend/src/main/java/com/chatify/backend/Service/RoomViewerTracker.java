@@ -0,0 +1,86 @@
+package com.chatify.backend.Service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Tracks which users currently have a room open, i.e. hold a subscription
+ * to /topic/room/{roomId}. Messages to a room a user is looking at do not
+ * count as unread for them.
+ */
+@Service
+public class RoomViewerTracker {
+
+    private static final String ROOM_TOPIC = "/topic/room/";
+
+    @Autowired
+    private SessionMembershipCache sessionMembershipCache;
+
+    // roomId -> userId -> number of open subscriptions
+    private final ConcurrentHashMap<String, ConcurrentHashMap<Long, AtomicInteger>> viewers = new ConcurrentHashMap<>();
+
+    // sessionId -> subscriptionId -> what it was viewing (needed to undo on UNSUBSCRIBE / disconnect)
+    private final ConcurrentHashMap<String, Map<String, View>> subscriptions = new ConcurrentHashMap<>();
+
+    private record View(String roomId, Long userId) {}
+
+    public boolean isViewing(String roomId, Long userId) {
+        Map<Long, AtomicInteger> roomViewers = viewers.get(roomId);
+        return roomViewers != null && roomViewers.containsKey(userId);
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String roomId = roomIdOf(accessor.getDestination());
+        SessionIdentity identity = sessionMembershipCache.get(accessor.getSessionId());
+        if (roomId == null || identity == null) return;
+
+        subscriptions.computeIfAbsent(accessor.getSessionId(), id -> new ConcurrentHashMap<>())
+                .put(accessor.getSubscriptionId(), new View(roomId, identity.getUserId()));
+        viewers.computeIfAbsent(roomId, id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(identity.getUserId(), id -> new AtomicInteger())
+                .incrementAndGet();
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Map<String, View> bySubscription = subscriptions.get(accessor.getSessionId());
+        if (bySubscription == null) return;
+
+        View view = bySubscription.remove(accessor.getSubscriptionId());
+        if (view != null) release(view);
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, View> bySubscription = subscriptions.remove(event.getSessionId());
+        if (bySubscription == null) return;
+        bySubscription.values().forEach(this::release);
+    }
+
+    private void release(View view) {
+        viewers.computeIfPresent(view.roomId(), (id, roomViewers) -> {
+            roomViewers.computeIfPresent(view.userId(),
+                    (userId, count) -> count.decrementAndGet() <= 0 ? null : count);
+            return roomViewers.isEmpty() ? null : roomViewers;
+        });
+    }
+
+    // "/topic/room/42" -> "42"; edit/delete sub-topics do not count as viewing
+    private String roomIdOf(String destination) {
+        if (destination == null || !destination.startsWith(ROOM_TOPIC)) return null;
+        String roomId = destination.substring(ROOM_TOPIC.length());
+        return roomId.isEmpty() || roomId.contains("/") ? null : roomId;
+    }
+}
@@ -0,0 +1,38 @@
+package com.chatify.backend.Service;
+
+import lombok.Getter;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Who is behind a WebSocket session, resolved once at CONNECT time
+@Getter
+public class SessionIdentity {
+
+    private final Long userId;
+    private final String username;
+    private final String email;
+    private final UserDetails principal;
+
+    // Rooms this session belongs to — kept in sync by SessionMembershipCache
+    private final Set<String> roomIds = ConcurrentHashMap.newKeySet();
+
+    public SessionIdentity(Long userId, String username, String email,
+                           UserDetails principal, Collection<Long> roomIds) {
+        this.userId = userId;
+        this.username = username;
+        this.email = email;
+        this.principal = principal;
+        roomIds.forEach(id -> this.roomIds.add(String.valueOf(id)));
+    }
+
+    public boolean isMemberOf(String roomId) {
+        return roomIds.contains(roomId);
+    }
+
+    public boolean canPostTo(String roomId) {
+        return isMemberOf(roomId);
+    }
+}
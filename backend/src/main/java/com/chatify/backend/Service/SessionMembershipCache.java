@@ -0,0 +1,160 @@
+package com.chatify.backend.Service;
+
+import com.chatify.backend.Entity.User;
+import com.chatify.backend.Event.RoomMembershipChangedEvent;
+import com.chatify.backend.Repository.RoomMemberRepository;
+import com.chatify.backend.Repository.UserRoom;
+import com.chatify.backend.Security.JwtUserPrincipal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Caches the resolved user and their room memberships per WebSocket session.
+ * Built once on CONNECT so the STOMP send path can authorize a message
+ * without going back to MySQL for every frame.
+ * Changes made on other nodes arrive relayed (RoomMembershipRelay); open
+ * sessions are also re-read periodically in case a relayed change was lost.
+ */
+@Service
+@Slf4j
+public class SessionMembershipCache {
+
+    @Autowired
+    private RoomMemberRepository roomMemberRepository;
+
+    // sessionId -> identity
+    private final ConcurrentHashMap<String, SessionIdentity> sessions = new ConcurrentHashMap<>();
+
+    private static final int REFRESH_BATCH = 500;
+
+    // userId -> open sessionIds (a user can have several tabs open)
+    private final ConcurrentHashMap<Long, Set<String>> sessionsByUser = new ConcurrentHashMap<>();
+
+    // userId -> when a change event was last applied (nanoTime); a re-read that
+    // started earlier must not overwrite it
+    private final ConcurrentHashMap<Long, Long> changedAt = new ConcurrentHashMap<>();
+
+    // Called from the CONNECT interceptor once the user is authenticated;
+    // with a claims-based principal the room list is the only query
+    public SessionIdentity register(String sessionId, JwtUserPrincipal principal, String username) {
+        return register(sessionId, new SessionIdentity(
+                principal.getId(),
+                username,
+                principal.getEmail(),
+                principal,
+                roomMemberRepository.findRoomIdsByUserId(principal.getId())));
+    }
+
+    public SessionIdentity register(String sessionId, User user, UserDetails principal) {
+        return register(sessionId, new SessionIdentity(
+                user.getId(),
+                user.getUsername(),
+                user.getEmail(),
+                principal,
+                roomMemberRepository.findRoomIdsByUserId(user.getId())));
+    }
+
+    private SessionIdentity register(String sessionId, SessionIdentity identity) {
+        sessions.put(sessionId, identity);
+        sessionsByUser.computeIfAbsent(identity.getUserId(), id -> ConcurrentHashMap.newKeySet())
+                .add(sessionId);
+        return identity;
+    }
+
+    public SessionIdentity get(String sessionId) {
+        return sessionId == null ? null : sessions.get(sessionId);
+    }
+
+    public void unregister(String sessionId) {
+        SessionIdentity identity = sessions.remove(sessionId);
+        if (identity == null) return;
+
+        sessionsByUser.computeIfPresent(identity.getUserId(), (id, ids) -> {
+            ids.remove(sessionId);
+            if (!ids.isEmpty()) return ids;
+            changedAt.remove(id);
+            return null;
+        });
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        unregister(event.getSessionId());
+    }
+
+    // Runs after the membership change commits, so a rolled back add never
+    // grants posting rights to an open session
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMembershipChanged(RoomMembershipChangedEvent event) {
+        Set<String> sessionIds = sessionsByUser.get(event.getUserId());
+        if (sessionIds == null) return;
+        changedAt.put(event.getUserId(), System.nanoTime());
+
+        String roomId = String.valueOf(event.getRoomId());
+        for (String sessionId : sessionIds) {
+            SessionIdentity identity = sessions.get(sessionId);
+            if (identity == null) continue;
+            if (event.isJoined()) {
+                identity.getRoomIds().add(roomId);
+            } else {
+                identity.getRoomIds().remove(roomId);
+            }
+        }
+        log.debug("Updated {} session(s) of user {} for room {} (joined={})",
+                sessionIds.size(), event.getUserId(), roomId, event.isJoined());
+    }
+
+    // Fallback for changes whose relayed event never arrived: re-reads the
+    // rooms of every user with an open session, a batch of users per query
+    @Scheduled(initialDelayString = "${chatify.membership.refresh-ms:60000}",
+            fixedDelayString = "${chatify.membership.refresh-ms:60000}")
+    public void refreshMemberships() {
+        List<Long> userIds = new ArrayList<>(sessionsByUser.keySet());
+        int corrected = 0;
+        for (int from = 0; from < userIds.size(); from += REFRESH_BATCH) {
+            List<Long> batch = userIds.subList(from, Math.min(from + REFRESH_BATCH, userIds.size()));
+            long readAt = System.nanoTime();
+            Map<Long, Set<String>> roomsByUser = new HashMap<>();
+            for (UserRoom membership : roomMemberRepository.findRoomIdsByUserIds(batch)) {
+                roomsByUser.computeIfAbsent(membership.getUserId(), id -> new HashSet<>())
+                        .add(String.valueOf(membership.getRoomId()));
+            }
+            for (Long userId : batch) {
+                Long changed = changedAt.get(userId);
+                if (changed != null && changed - readAt >= 0) continue;   // Newer than what we read
+                corrected += replaceRooms(userId, roomsByUser.getOrDefault(userId, Set.of()));
+            }
+        }
+        if (corrected > 0) {
+            log.info("Membership refresh corrected {} session(s)", corrected);
+        }
+    }
+
+    private int replaceRooms(Long userId, Set<String> roomIds) {
+        Set<String> sessionIds = sessionsByUser.get(userId);
+        if (sessionIds == null) return 0;
+        int corrected = 0;
+        for (String sessionId : sessionIds) {
+            SessionIdentity identity = sessions.get(sessionId);
+            if (identity == null || identity.getRoomIds().equals(roomIds)) continue;
+            identity.getRoomIds().retainAll(roomIds);
+            identity.getRoomIds().addAll(roomIds);
+            corrected++;
+        }
+        return corrected;
+    }
+}
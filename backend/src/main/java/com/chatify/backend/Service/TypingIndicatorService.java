@@ -0,0 +1,113 @@
+package com.chatify.backend.Service;
+
+import com.chatify.backend.DTO.TypingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Typing indicators, kept in memory only — never stored.
+ * Each (user, room) is throttled: repeated "typing" events inside the
+ * throttle window are dropped, and a typist disappears by itself once their
+ * events stop for the TTL. Rooms whose set of typists changed are marked
+ * dirty and get at most one TypingState broadcast per tick.
+ *
+ * A frame inside its throttle window is dropped after two plain reads.
+ * Everything that changes a room's typists goes through compute on the
+ * room, so a room emptied by expiry cannot swallow a typist added meanwhile.
+ */
+@Service
+@Slf4j
+public class TypingIndicatorService {
+
+    private static final String TYPING_TOPIC = "/topic/room/%s/typing";
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Value("${chatify.typing.throttle-ms:1000}")
+    private long throttleMs;
+
+    @Value("${chatify.typing.ttl-ms:5000}")
+    private long ttlMs;
+
+    private static final class Typist {
+        final String username;
+        volatile long lastAccepted;
+
+        Typist(String username, long now) {
+            this.username = username;
+            this.lastAccepted = now;
+        }
+    }
+
+    // roomId -> userId -> typist
+    private final ConcurrentHashMap<String, ConcurrentHashMap<Long, Typist>> rooms = new ConcurrentHashMap<>();
+
+    // Rooms whose typists changed since the last broadcast
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    public void onTyping(String roomId, SessionIdentity identity, boolean typing) {
+        Long userId = identity.getUserId();
+        if (!typing) {
+            rooms.computeIfPresent(roomId, (id, typists) -> {
+                if (typists.remove(userId) != null) {
+                    dirty.add(roomId);
+                }
+                return typists.isEmpty() ? null : typists;
+            });
+            return;
+        }
+
+        // Already shown as typing and inside the window: nothing to do
+        long now = System.currentTimeMillis();
+        ConcurrentHashMap<Long, Typist> current = rooms.get(roomId);
+        Typist seen = current == null ? null : current.get(userId);
+        if (seen != null && now - seen.lastAccepted < throttleMs) {
+            return;
+        }
+
+        rooms.compute(roomId, (id, typists) -> {
+            if (typists == null) typists = new ConcurrentHashMap<>();
+            Typist existing = typists.get(userId);
+            if (existing != null) {
+                existing.lastAccepted = now;   // Keep-alive
+            } else {
+                typists.put(userId, new Typist(identity.getUsername(), now));
+                dirty.add(roomId);
+            }
+            return typists;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${chatify.typing.broadcast-interval-ms:500}")
+    public void broadcast() {
+        long expiredBefore = System.currentTimeMillis() - ttlMs;
+        for (String roomId : rooms.keySet()) {
+            rooms.computeIfPresent(roomId, (id, typists) -> {
+                if (typists.values().removeIf(typist -> typist.lastAccepted < expiredBefore)) {
+                    dirty.add(roomId);
+                }
+                return typists.isEmpty() ? null : typists;
+            });
+        }
+
+        for (String roomId : dirty) {
+            dirty.remove(roomId);
+            ConcurrentHashMap<Long, Typist> typists = rooms.get(roomId);
+            List<TypingState.Typist> typing = typists == null
+                    ? List.of()
+                    : typists.entrySet().stream()
+                            .map(entry -> new TypingState.Typist(entry.getKey(), entry.getValue().username))
+                            .toList();
+            messagingTemplate.convertAndSend(TYPING_TOPIC.formatted(roomId), new TypingState(roomId, typing));
+        }
+    }
+}
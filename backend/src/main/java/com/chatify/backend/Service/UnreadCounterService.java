@@ -0,0 +1,209 @@
+package com.chatify.backend.Service;
+
+import com.chatify.backend.Entity.Message;
+import com.chatify.backend.Entity.ReadMarker;
+import com.chatify.backend.Exception.ResourceNotFoundException;
+import com.chatify.backend.Repository.MessageRepository;
+import com.chatify.backend.Repository.ReadMarkerRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Per-(user, room) unread counters.
+ * Sending a message only queues one arrival for its room. The flush thread
+ * fans each arrival out to an in-memory delta for every member who does not
+ * have the room open, and folds the deltas into the read_marker documents in
+ * one bulk write every few seconds — so a large room costs the sender
+ * nothing extra. Reading a user's counters is one query for their markers
+ * plus whatever is already fanned out in memory.
+ *
+ * markRead replaces the counter with a fresh count. Arrivals it counted are
+ * skipped when they are fanned out later, and a delta that a flush had
+ * already taken when markRead ran is covered by that count, so each $inc
+ * only applies to a marker last read before the delta's first message.
+ */
+@Service
+@Slf4j
+public class UnreadCounterService {
+
+    @Autowired
+    private ReadMarkerRepository readMarkerRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private RoomMemberIndex roomMemberIndex;
+
+    @Autowired
+    private RoomViewerTracker roomViewerTracker;
+
+    @Autowired
+    private ReadReceiptService readReceiptService;
+
+    // How long a markRead is remembered for skipping arrivals it already counted;
+    // every arrival is fanned out well within this
+    private static final long READ_MEMORY_MS = 60_000;
+
+    // Saved messages not yet fanned out to the room's members
+    private final ConcurrentLinkedQueue<Arrival> arrivals = new ConcurrentLinkedQueue<>();
+
+    // userId -> roomId -> unread messages not yet written to Mongo
+    private final ConcurrentHashMap<Long, ConcurrentHashMap<String, PendingCount>> pending = new ConcurrentHashMap<>();
+
+    // "<userId>:<roomId>" -> when this node last ran markRead for it
+    private final ConcurrentHashMap<String, OffsetDateTime> recentReads = new ConcurrentHashMap<>();
+
+    private record Arrival(String roomId, Long senderId, OffsetDateTime at) {}
+
+    private static final class PendingCount {
+        final OffsetDateTime since;   // When the first of these arrived
+        final LongAdder count = new LongAdder();
+
+        PendingCount(OffsetDateTime since) {
+            this.since = since;
+        }
+    }
+
+    // Called for every chat message once it is saved; the fan-out to members
+    // happens on the flush thread
+    public void onMessageSaved(String roomId, Long senderId) {
+        arrivals.add(new Arrival(roomId, senderId, OffsetDateTime.now()));
+    }
+
+    // Client reports the last message it has seen in a room
+    public void markRead(Long userId, String roomId, String messageId) {
+        Message lastRead = null;
+        if (messageId != null) {
+            lastRead = messageRepository.findById(messageId)
+                    .filter(message -> roomId.equals(message.getRoomId()))
+                    .orElseThrow(() -> new ResourceNotFoundException("Message not found"));
+        }
+
+        // Drop the pending delta first: anything arriving from here on is
+        // genuinely unread and will be flushed on top of the new value.
+        // Arrivals not fanned out yet are skipped by their time
+        OffsetDateTime readAt = OffsetDateTime.now();
+        recentReads.put(ReadMarker.key(userId, roomId), readAt);
+        pending.computeIfPresent(userId, (id, rooms) -> {
+            rooms.remove(roomId);
+            return rooms.isEmpty() ? null : rooms;
+        });
+
+        // Messages after the one the client stopped at, counted the way
+        // onMessageSaved counts them: not the reader's own, no system messages
+        long unread = lastRead == null ? 0 : messageRepository.countUnread(
+                roomId, lastRead.getTimestamp(), readAt, String.valueOf(userId));
+
+        ReadMarker marker = new ReadMarker(
+                ReadMarker.key(userId, roomId),
+                userId,
+                roomId,
+                lastRead == null ? null : lastRead.getId(),
+                readAt,
+                unread);
+        readMarkerRepository.save(marker);
+        if (lastRead != null) {
+            readReceiptService.onRead(roomId, userId, lastRead);
+        }
+    }
+
+    // Unread count for every room the user has a counter for
+    public Map<String, Long> getUnreadCounts(Long userId) {
+        Map<String, Long> counts = new HashMap<>();
+        for (ReadMarker marker : readMarkerRepository.findByUserId(userId)) {
+            counts.put(marker.getRoomId(), marker.getUnreadCount());
+        }
+        Map<String, PendingCount> userPending = pending.get(userId);
+        if (userPending != null) {
+            userPending.forEach((roomId, delta) -> counts.merge(roomId, delta.count.sum(), Long::sum));
+        }
+        return counts;
+    }
+
+    @Scheduled(fixedDelayString = "${chatify.unread.flush-interval-ms:5000}")
+    public void flush() {
+        fanOut();
+
+        // Ordered: each marker is created (if missing) before its guarded increment
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, ReadMarker.class);
+        AtomicInteger updates = new AtomicInteger();
+
+        for (Long userId : pending.keySet()) {
+            pending.computeIfPresent(userId, (id, rooms) -> {
+                for (Map.Entry<String, PendingCount> room : rooms.entrySet()) {
+                    String key = ReadMarker.key(userId, room.getKey());
+                    bulk.upsert(
+                            Query.query(Criteria.where("_id").is(key)),
+                            new Update()
+                                    .setOnInsert("userId", userId)
+                                    .setOnInsert("roomId", room.getKey())
+                                    .setOnInsert("unreadCount", 0L));
+                    // A markRead after the first of these messages already counted them
+                    bulk.updateOne(
+                            Query.query(Criteria.where("_id").is(key).orOperator(
+                                    Criteria.where("lastReadAt").is(null),   // Also matches a missing field
+                                    Criteria.where("lastReadAt").lt(room.getValue().since))),
+                            new Update().inc("unreadCount", room.getValue().count.sum()));
+                }
+                updates.addAndGet(rooms.size());
+                return null;   // Everything pending for this user is now in the batch
+            });
+        }
+
+        if (updates.get() > 0) {
+            bulk.execute();
+            log.debug("Flushed {} unread counter updates", updates.get());
+        }
+    }
+
+    // One delta per member of each arrival's room, except the sender and anyone
+    // who has the room open or has read past it since
+    private void fanOut() {
+        Arrival arrival;
+        while ((arrival = arrivals.poll()) != null) {
+            String roomId = arrival.roomId();
+            for (Long memberId : roomMemberIndex.members(roomId)) {
+                if (memberId.equals(arrival.senderId()) || roomViewerTracker.isViewing(roomId, memberId)) {
+                    continue;
+                }
+                OffsetDateTime readAt = recentReads.get(ReadMarker.key(memberId, roomId));
+                if (readAt != null && !readAt.isBefore(arrival.at())) continue;
+
+                OffsetDateTime at = arrival.at();
+                // compute() holds the user's bin, so a concurrent markRead cannot drop the map under us
+                pending.compute(memberId, (id, rooms) -> {
+                    if (rooms == null) rooms = new ConcurrentHashMap<>();
+                    rooms.computeIfAbsent(roomId, room -> new PendingCount(at)).count.increment();
+                    return rooms;
+                });
+            }
+        }
+        OffsetDateTime forgetBefore = OffsetDateTime.now().minusNanos(READ_MEMORY_MS * 1_000_000);
+        recentReads.values().removeIf(readAt -> readAt.isBefore(forgetBefore));
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
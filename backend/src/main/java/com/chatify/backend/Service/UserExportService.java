@@ -0,0 +1,69 @@
+package com.chatify.backend.Service;
+
+import com.chatify.backend.DTO.UserResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.ObjectMapper;
+
+import javax.sql.DataSource;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.OffsetDateTime;
+
+/*
+ * Streams the active user directory as NDJSON (one UserResponse per line).
+ * Rows come off a streaming MySQL result set and are written out one by
+ * one, so memory stays flat however large the table is.
+ */
+@Service
+@Slf4j
+public class UserExportService {
+
+    private static final String EXPORT_SQL = """
+            SELECT id, username, email, avatar_url, created_at
+            FROM `user`
+            WHERE is_active = true
+            ORDER BY id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public UserExportService(DataSource dataSource) {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        // Connector/J streams rows one at a time instead of buffering the result
+        jdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+    }
+
+    public void export(OutputStream out) throws IOException {
+        BufferedOutputStream buffered = new BufferedOutputStream(out, 64 * 1024);
+        int[] rows = {0};
+        try {
+            jdbcTemplate.query(EXPORT_SQL, rs -> {
+                UserResponse user = new UserResponse(
+                        rs.getLong("id"),
+                        rs.getString("username"),
+                        rs.getString("email"),
+                        rs.getString("avatar_url"),
+                        rs.getObject("created_at", OffsetDateTime.class));
+                try {
+                    buffered.write(objectMapper.writeValueAsBytes(user));
+                    buffered.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);   // client went away; stop reading rows
+                }
+                rows[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        buffered.flush();
+        log.debug("Exported {} users", rows[0]);
+    }
+}
@@ -3,25 +3,36 @@ package com.chatify.backend.Service;
 import com.chatify.backend.DTO.AuthResponse;
 import com.chatify.backend.DTO.LoginRequest;
 import com.chatify.backend.DTO.RegisterRequest;
+import com.chatify.backend.DTO.UserPageResponse;
 import com.chatify.backend.DTO.UserResponse;
 import com.chatify.backend.Entity.User;
 import com.chatify.backend.Exception.ConflictException;
 import com.chatify.backend.Exception.ResourceNotFoundException;
 import com.chatify.backend.Repository.UserRepository;
 import com.chatify.backend.Security.JwtUtil;
+import com.chatify.backend.Security.TokenRevocationService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Service
 public class UserService {
 
+    private static final int MAX_USER_PAGE = 200;
+    // Hard cap on the deprecated unpaged list
+    private static final int MAX_USER_LIST = 1000;
+    private static final int MAX_SEARCH_RESULTS = 50;
+
     @Autowired
     private UserRepository userRepository;
     @Autowired
@@ -30,15 +41,65 @@ public class UserService {
     private JwtUtil jwtUtil;
     @Autowired
     private AuthenticationManager authenticationManager;
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+    @Autowired
+    private UsernameSearchIndex usernameSearchIndex;
 
-    @Transactional(readOnly = true)
+    // Deprecated in favour of getUsers: the first MAX_USER_LIST active users
+    // by id, mapped in the query, never the whole table
+    @Deprecated
     public List<UserResponse> getAllUsers() {
-        return userRepository.findAll().stream()
+        return userRepository.findActivePage(0L, PageRequest.of(0, MAX_USER_LIST));
+    }
+
+    // One keyset page of the user directory, ordered by id
+    @Transactional(readOnly = true)
+    public UserPageResponse getUsers(Long after, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_USER_PAGE));
+        // Fetch one extra row to learn whether another page follows
+        List<UserResponse> users = new ArrayList<>(userRepository.findActivePage(
+                after == null ? 0L : after, PageRequest.of(0, pageSize + 1)));
+
+        boolean hasMore = users.size() > pageSize;
+        if (hasMore) {
+            users.remove(pageSize);
+        }
+        return UserPageResponse.builder()
+                .users(users)
+                .nextCursor(hasMore ? users.get(users.size() - 1).getId() : null)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    // Served from the in-memory index; the LIKE query only covers the
+    // moments after startup before the index has loaded
+    @Transactional(readOnly = true)
+    public List<UserResponse> searchUsers(String query, int limit, String excludeEmail) {
+        int max = Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS));
+        if (!usernameSearchIndex.isReady()) {
+            return userRepository.searchByUsername(query, excludeEmail, PageRequest.of(0, max))
+                    .stream()
+                    .map(UserResponse::from)
+                    .toList();
+        }
+
+        // One spare result in case the caller matches their own query
+        List<Long> ranked = usernameSearchIndex.search(query, max + 1);
+        Map<Long, User> users = new HashMap<>();
+        userRepository.findAllById(ranked).forEach(user -> users.put(user.getId(), user));
+
+        return ranked.stream()
+                .map(users::get)
+                .filter(user -> user != null && user.isActive() && !user.getEmail().equals(excludeEmail))
+                .limit(max)
                 .map(UserResponse::from)
-                .collect(Collectors.toList());
+                .toList();
     }
 
-    @Transactional
+    // Not @Transactional: BCrypt can queue for its bounded pool for seconds,
+    // and nothing here may hold a JDBC connection meanwhile. Each repository
+    // call below is its own short transaction
     public AuthResponse register(RegisterRequest request) {
 
         // Check if email already exists
@@ -51,22 +112,30 @@ public class UserService {
             throw new ConflictException("Username already taken");
         }
 
-        // Create user — hash password before saving
+        // Hash before the insert opens its transaction
+        String passwordHash = passwordEncoder.encode(request.getPassword()); // NEVER store plain text
+
         User user = new User();
         user.setUsername(request.getUsername());
         user.setEmail(request.getEmail());
-        user.setPasswordHash(
-                passwordEncoder.encode(request.getPassword()) // NEVER store plain text
-        );
+        user.setPasswordHash(passwordHash);
         user.setActive(true);
-        User saved = userRepository.save(user);
+        User saved;
+        try {
+            saved = userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            // Same email or username registered between the checks and the insert
+            throw new ConflictException("Email or username already taken");
+        }
+        usernameSearchIndex.add(saved.getId(), saved.getUsername());
 
         // Generate JWT and return response
-        String token = jwtUtil.generateToken(saved.getEmail());
+        String token = jwtUtil.generateToken(saved);
         return AuthResponse.of(token, saved);
     }
 
-    @Transactional(readOnly = true)
+    // Not @Transactional for the same reason as register: the password check
+    // runs on the hashing pool with no connection held
     public AuthResponse login(LoginRequest request) {
 
         // Spring Security validates credentials against database
@@ -77,11 +146,22 @@ public class UserService {
                 )
         );
 
-        // If we reach here, credentials are valid
+        // If we reach here, credentials are valid; one short read for the token
         User user = userRepository.findByEmail(request.getEmail())
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
-        String token = jwtUtil.generateToken(user.getEmail());
+        String token = jwtUtil.generateToken(user);
         return AuthResponse.of(token, user);
     }
+
+    // Deactivate an account; its outstanding tokens stop working immediately
+    @Transactional
+    public void deactivate(String email) {
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        user.setActive(false);
+        userRepository.save(user);
+        tokenRevocationService.revoke(user.getId());
+        usernameSearchIndex.remove(user.getId());
+    }
 }
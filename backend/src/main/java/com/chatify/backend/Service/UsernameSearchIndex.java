@@ -0,0 +1,291 @@
+package com.chatify.backend.Service;
+
+import com.chatify.backend.Cluster.ClusterFanout;
+import com.chatify.backend.DTO.UserResponse;
+import com.chatify.backend.Repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/*
+ * In-memory username search for active users.
+ *   prefix    -> a sorted skip list of lower-cased names, read as a range
+ *   substring -> trigram postings; candidates come from the rarest trigram
+ *                of the query and are checked against the current name
+ * Prefix matches rank first, then substring matches by how early and in how
+ * short a name the query occurs; one-character queries scan the name map.
+ * Postings are append-only: renamed or deactivated users are filtered out by
+ * the check against the name map.
+ * Registrations and deactivations are relayed to the other nodes, and every
+ * node periodically picks up new users and drops deactivated ones in case a
+ * relayed event was lost.
+ */
+@Service
+@Slf4j
+public class UsernameSearchIndex {
+
+    private static final int LOAD_BATCH = 10_000;
+    private static final String ADDED_EVENT = "username-added";
+    private static final String REMOVED_EVENT = "username-removed";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ClusterFanout clusterFanout;
+
+    // userId -> lower-cased username (the source of truth for every match)
+    private final ConcurrentHashMap<Long, String> names = new ConcurrentHashMap<>();
+
+    // "<lower-cased username>\0<userId>" -> userId, ordered for prefix ranges
+    private final ConcurrentSkipListMap<String, Long> byName = new ConcurrentSkipListMap<>();
+
+    // trigram -> ids of users whose name contained it when they were added
+    private final ConcurrentHashMap<String, Postings> trigrams = new ConcurrentHashMap<>();
+
+    // Users removed while the initial load runs; the load must not bring them back
+    private final Set<Long> removedWhileLoading = ConcurrentHashMap.newKeySet();
+
+    // Highest user id read by the last load or refresh
+    private volatile long highestLoadedId;
+
+    private volatile boolean ready;
+
+    @PostConstruct
+    public void init() {
+        clusterFanout.onEvent(ADDED_EVENT, this::onAdded);
+        clusterFanout.onEvent(REMOVED_EVENT, payload -> unindex(Long.valueOf(utf8(payload))));
+    }
+
+    // Searches go to the database until the background load has finished
+    @EventListener(ApplicationReadyEvent.class)
+    public void startLoading() {
+        Thread loader = new Thread(this::load, "username-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void load() {
+        loadAfter(0);
+        // A removal that raced the add of the same user wins
+        removedWhileLoading.forEach(this::unindex);
+        ready = true;
+        removedWhileLoading.clear();
+        log.info("Username search index loaded with {} users", names.size());
+    }
+
+    // Load active users in keyset batches without holding the table in memory
+    private int loadAfter(long after) {
+        int loaded = 0;
+        List<UserResponse> batch;
+        do {
+            batch = userRepository.findActivePage(after, PageRequest.of(0, LOAD_BATCH));
+            for (UserResponse user : batch) {
+                if (!removedWhileLoading.contains(user.getId())) {
+                    index(user.getId(), user.getUsername());
+                    loaded++;
+                }
+                after = user.getId();
+            }
+        } while (batch.size() == LOAD_BATCH);
+        highestLoadedId = Math.max(highestLoadedId, after);
+        return loaded;
+    }
+
+    // Catches registrations and deactivations on other nodes whose event never arrived
+    @Scheduled(initialDelayString = "${chatify.users.search.refresh-ms:60000}",
+            fixedDelayString = "${chatify.users.search.refresh-ms:60000}")
+    public void refresh() {
+        if (!ready) return;
+        int added = loadAfter(highestLoadedId);
+        int removed = 0;
+        for (Long userId : userRepository.findIdsByActiveFalse()) {
+            if (names.containsKey(userId)) {
+                unindex(userId);
+                removed++;
+            }
+        }
+        if (added > 0 || removed > 0) {
+            log.info("Username search index refresh: {} added, {} removed", added, removed);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    // Add a user or pick up a new username, here and on every other node
+    public void add(Long userId, String username) {
+        index(userId, username);
+        clusterFanout.publishEvent(ADDED_EVENT, (userId + "\0" + username).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void remove(Long userId) {
+        unindex(userId);
+        clusterFanout.publishEvent(REMOVED_EVENT, String.valueOf(userId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // "<userId>\0<username>" from the node the user registered on
+    private void onAdded(byte[] payload) {
+        String event = utf8(payload);
+        int separator = event.indexOf('\0');
+        index(Long.valueOf(event.substring(0, separator)), event.substring(separator + 1));
+    }
+
+    private static String utf8(byte[] payload) {
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+
+    private void index(Long userId, String username) {
+        String name = username.toLowerCase(Locale.ROOT);
+        String previous = names.put(userId, name);
+        if (name.equals(previous)) return;
+        if (previous != null) {
+            byName.remove(key(previous, userId));
+        }
+        byName.put(key(name, userId), userId);
+        for (String trigram : trigramsOf(name)) {
+            trigrams.computeIfAbsent(trigram, t -> new Postings()).add(userId);
+        }
+    }
+
+    private void unindex(Long userId) {
+        if (!ready) {
+            removedWhileLoading.add(userId);   // Recorded first, so load() sees it
+        }
+        String name = names.remove(userId);
+        if (name != null) {
+            byName.remove(key(name, userId));
+        }
+    }
+
+    // Ids of up to `limit` users whose name contains the query, best matches first
+    public List<Long> search(String query, int limit) {
+        String q = query.trim().toLowerCase(Locale.ROOT);
+        if (q.isEmpty() || limit <= 0) return List.of();
+
+        Set<Long> results = new LinkedHashSet<>();
+        for (Long userId : byName.subMap(q, q + Character.MAX_VALUE).values()) {
+            results.add(userId);
+            if (results.size() >= limit) return new ArrayList<>(results);
+        }
+
+        // Substring matches that are not prefixes, ranked by match position then name length
+        Comparator<Match> worstFirst = Comparator.comparingInt(Match::position)
+                .thenComparingInt(match -> match.name().length())
+                .thenComparing(Match::name)
+                .reversed();
+        PriorityQueue<Match> best = new PriorityQueue<>(worstFirst);
+        int wanted = limit - results.size();
+
+        Set<Long> matched = new HashSet<>();
+        forEachCandidate(q, userId -> {
+            String name = names.get(userId);
+            if (name == null) return;
+            int position = name.indexOf(q);
+            if (position <= 0) return;   // no match, or a prefix match already listed
+            Match match = new Match(userId, name, position);
+            if (best.size() == wanted && worstFirst.compare(match, best.peek()) <= 0) return;
+            if (!matched.add(userId)) return;   // postings can list a user twice
+            best.offer(match);
+            if (best.size() > wanted) best.poll();
+        });
+
+        List<Match> ranked = new ArrayList<>(best);
+        ranked.sort(worstFirst.reversed());
+        ranked.forEach(match -> results.add(match.userId()));
+        return new ArrayList<>(results);
+    }
+
+    private record Match(Long userId, String name, int position) {}
+
+    private interface IdConsumer {
+        void accept(long userId);
+    }
+
+    private void forEachCandidate(String q, IdConsumer consumer) {
+        if (q.length() == 1) {
+            // Too common for postings to help, and names under three characters have none
+            names.keySet().forEach(userId -> consumer.accept(userId));
+            return;
+        }
+        if (q.length() == 2) {
+            // Every name containing the pair has a trigram containing it
+            trigrams.forEach((trigram, postings) -> {
+                if (trigram.contains(q)) postings.forEach(consumer);
+            });
+            return;
+        }
+        Postings rarest = null;
+        for (String trigram : trigramsOf(q)) {
+            Postings postings = trigrams.get(trigram);
+            if (postings == null) return;   // some trigram never occurs: no match
+            if (rarest == null || postings.size() < rarest.size()) rarest = postings;
+        }
+        rarest.forEach(consumer);
+    }
+
+    private static Set<String> trigramsOf(String name) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= name.length(); i++) {
+            grams.add(name.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    private static String key(String name, Long userId) {
+        return name + '\0' + userId;
+    }
+
+    // Append-only list of user ids kept as a primitive array
+    private static final class Postings {
+        private long[] ids = new long[4];
+        private int size;
+
+        synchronized void add(long userId) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = userId;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        void forEach(IdConsumer consumer) {
+            long[] snapshot;
+            int count;
+            synchronized (this) {
+                snapshot = ids;
+                count = size;
+            }
+            // Slots below `count` never change once written
+            for (int i = 0; i < count; i++) {
+                consumer.accept(snapshot[i]);
+            }
+        }
+    }
+}
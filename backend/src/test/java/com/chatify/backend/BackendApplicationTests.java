@@ -5,10 +5,10 @@ import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
 @SpringBootTest
+@Disabled("Re-enable once all repository methods are verified") // needs MySQL and MongoDB
 class BackendApplicationTests {
 
 	@Test
-	@Disabled("Re-enable once all repository methods are verified") // ← add this
 	void contextLoads() {
 	}
 }
\ No newline at end of file
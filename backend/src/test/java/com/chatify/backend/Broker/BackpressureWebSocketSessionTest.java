@@ -0,0 +1,135 @@
+package com.chatify.backend.Broker;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BackpressureWebSocketSessionTest {
+
+    private final OutboundBackpressure settings = new OutboundBackpressure();
+    private final WebSocketSession socket = mock(WebSocketSession.class);
+    private final List<String> written = new CopyOnWriteArrayList<>();
+    private final CountDownLatch released = new CountDownLatch(1);
+    private final CountDownLatch firstWrite = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(settings, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(settings, "sendTimeLimit", 10_000);
+        ReflectionTestUtils.setField(settings, "sendBufferSizeLimit", 1 << 20);
+        ReflectionTestUtils.setField(settings, "maxQueuedFrames", 3);
+        ReflectionTestUtils.setField(settings, "policy", SlowConsumerPolicy.DROP_OLDEST);
+        settings.init();
+
+        when(socket.getId()).thenReturn("s1");
+        // The first write blocks until the test releases the peer
+        doAnswer(invocation -> {
+            firstWrite.countDown();
+            released.await();
+            written.add(((TextMessage) invocation.getArgument(0)).getPayload());
+            return null;
+        }).when(socket).sendMessage(any(WebSocketMessage.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        released.countDown();
+    }
+
+    @Test
+    void dropOldestNeverDropsControlFrames() throws Exception {
+        BackpressureWebSocketSession session = session();
+        session.sendMessage(frame("MESSAGE", 0));
+        firstWrite.await(5, TimeUnit.SECONDS);
+
+        session.sendMessage(frame("RECEIPT", 1));
+        for (int i = 2; i < 8; i++) {
+            session.sendMessage(frame("MESSAGE", i));
+        }
+        assertEquals(3, session.getQueuedFrames());
+
+        released.countDown();
+        awaitWritten(4);
+        assertEquals(List.of(frame("MESSAGE", 0), frame("RECEIPT", 1), frame("MESSAGE", 6), frame("MESSAGE", 7))
+                        .stream().map(TextMessage::getPayload).toList(),
+                written);
+        assertEquals(4, session.getDroppedFrames());
+    }
+
+    @Test
+    void sessionOfOnlyControlFramesOverTheLimitIsClosed() throws Exception {
+        BackpressureWebSocketSession session = session();
+        session.sendMessage(frame("MESSAGE", 0));
+        firstWrite.await(5, TimeUnit.SECONDS);
+
+        for (int i = 1; i <= 4; i++) {
+            session.sendMessage(frame("RECEIPT", i));
+        }
+
+        verify(socket).close(any(CloseStatus.class));
+        assertEquals(0, session.getQueuedFrames());
+    }
+
+    @Test
+    void stuckWriteClosesTheSessionUnderEveryPolicy() throws Exception {
+        for (SlowConsumerPolicy policy : SlowConsumerPolicy.values()) {
+            WebSocketSession peer = mock(WebSocketSession.class);
+            CountDownLatch writing = new CountDownLatch(1);
+            doAnswer(invocation -> {
+                writing.countDown();
+                released.await();
+                return null;
+            }).when(peer).sendMessage(any(WebSocketMessage.class));
+            ReflectionTestUtils.setField(settings, "policy", policy);
+            ReflectionTestUtils.setField(settings, "sendTimeLimit", 50);
+
+            BackpressureWebSocketSession session = new BackpressureWebSocketSession(
+                    peer, settings, Thread.ofVirtual().factory());
+            session.sendMessage(frame("MESSAGE", 0));
+            writing.await(5, TimeUnit.SECONDS);
+
+            session.closeIfStuck();
+            verify(peer, never()).close(any(CloseStatus.class));
+
+            Thread.sleep(100);
+            session.closeIfStuck();
+            verify(peer, timeout(5_000)).close(any(CloseStatus.class));
+        }
+    }
+
+    private BackpressureWebSocketSession session() {
+        return new BackpressureWebSocketSession(socket, settings, Thread.ofVirtual().factory());
+    }
+
+    private void awaitWritten(int frames) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (written.size() < frames && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static TextMessage frame(String command, int seq) {
+        String header = command.equals("MESSAGE") ? "destination:/topic/room/" + seq : "receipt-id:" + seq;
+        return new TextMessage(command + "\n" + header + "\n\n\u0000");
+    }
+}
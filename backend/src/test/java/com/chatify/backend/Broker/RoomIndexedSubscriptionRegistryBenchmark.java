@@ -0,0 +1,138 @@
+package com.chatify.backend.Broker;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.DefaultSubscriptionRegistry;
+import org.springframework.messaging.simp.broker.SubscriptionRegistry;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Compares broadcast lookups, with and without subscription churn, against
+// Spring's DefaultSubscriptionRegistry at 10k and 100k room subscriptions.
+// Not part of `gradle test`; run it with `gradle benchmark`.
+// Both registries share AbstractSubscriptionRegistry#findSubscriptions, so in
+// one JVM whichever is compiled first skews the other; each measurement runs
+// in a fresh JVM instead
+@Tag("benchmark")
+class RoomIndexedSubscriptionRegistryBenchmark {
+
+    private static final String[] SUFFIXES = {"", "/edit", "/delete"};
+    private static final int ROOMS = 2_000;
+    private static final int LOOKUPS = 200_000;
+    private static final int CHURN_OPS = 20_000;
+    private static final int ROUNDS = 10;
+
+    @Test
+    void compareWithDefaultRegistry() throws Exception {
+        for (int subscriptions : new int[]{10_000, 100_000}) {
+            // Same answers first, then timings
+            SubscriptionRegistry defaultRegistry = registry("default");
+            SubscriptionRegistry roomIndexed = registry("room-indexed");
+            subscribe(defaultRegistry, subscriptions);
+            subscribe(roomIndexed, subscriptions);
+            for (Message<?> broadcast : broadcasts()) {
+                assertEquals(defaultRegistry.findSubscriptions(broadcast).size(),
+                        roomIndexed.findSubscriptions(broadcast).size());
+            }
+
+            long[] defaultNanos = fork("default", subscriptions);
+            long[] indexedNanos = fork("room-indexed", subscriptions);
+            System.out.printf("%,d subscriptions: default %d ns/lookup, room-indexed %d ns/lookup%n",
+                    subscriptions, defaultNanos[0], indexedNanos[0]);
+            System.out.printf("%,d subscriptions with churn: default %d ns/op, room-indexed %d ns/op%n",
+                    subscriptions, defaultNanos[1], indexedNanos[1]);
+        }
+    }
+
+    // Entry point of a forked measurement: <registry> <subscriptions>; prints
+    // "<ns per lookup> <ns per churn op>"
+    public static void main(String[] args) {
+        SubscriptionRegistry registry = registry(args[0]);
+        subscribe(registry, Integer.parseInt(args[1]));
+        Message<?>[] broadcasts = broadcasts();
+
+        for (int i = 0; i < LOOKUPS; i++) registry.findSubscriptions(broadcasts[i % broadcasts.length]);
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            best = Math.min(best, time(registry, broadcasts));
+        }
+        System.out.println(best / LOOKUPS + " " + churn(registry, broadcasts) / CHURN_OPS);
+    }
+
+    private static long[] fork(String registry, int subscriptions) throws Exception {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                RoomIndexedSubscriptionRegistryBenchmark.class.getName(), registry, String.valueOf(subscriptions))
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        String output = new String(process.getInputStream().readAllBytes()).trim();
+        assertEquals(0, process.waitFor(), "forked benchmark failed");
+        String[] result = output.substring(output.lastIndexOf('\n') + 1).split(" ");
+        return new long[]{Long.parseLong(result[0]), Long.parseLong(result[1])};
+    }
+
+    private static SubscriptionRegistry registry(String name) {
+        return "default".equals(name) ? new DefaultSubscriptionRegistry() : new RoomIndexedSubscriptionRegistry();
+    }
+
+    private static void subscribe(SubscriptionRegistry registry, int subscriptions) {
+        Random random = new Random(42);
+        for (int i = 0; i < subscriptions; i++) {
+            // ~30 subscriptions per session, like a user with a handful of rooms open
+            String destination = "/topic/room/" + random.nextInt(ROOMS) + SUFFIXES[i % SUFFIXES.length];
+            registry.registerSubscription(message(SimpMessageType.SUBSCRIBE,
+                    "session-" + (i / 30), "sub-" + i, destination));
+        }
+    }
+
+    private static Message<?>[] broadcasts() {
+        Random random = new Random(7);
+        Message<?>[] broadcasts = new Message<?>[1_000];
+        for (int i = 0; i < broadcasts.length; i++) {
+            broadcasts[i] = message(SimpMessageType.MESSAGE, null, null,
+                    "/topic/room/" + random.nextInt(ROOMS) + SUFFIXES[i % SUFFIXES.length]);
+        }
+        return broadcasts;
+    }
+
+    private static long time(SubscriptionRegistry registry, Message<?>[] broadcasts) {
+        long start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            found += registry.findSubscriptions(broadcasts[i % broadcasts.length]).size();
+        }
+        long elapsed = System.nanoTime() - start;
+        assertEquals(true, found >= 0);
+        return elapsed;
+    }
+
+    // Rooms being opened and closed while broadcasts flow: subscribe,
+    // broadcast to that room, unsubscribe
+    private static long churn(SubscriptionRegistry registry, Message<?>[] broadcasts) {
+        Random random = new Random(11);
+        long start = System.nanoTime();
+        for (int i = 0; i < CHURN_OPS; i++) {
+            String destination = "/topic/room/" + random.nextInt(ROOMS);
+            registry.registerSubscription(message(SimpMessageType.SUBSCRIBE, "churn", "c-" + i, destination));
+            registry.findSubscriptions(message(SimpMessageType.MESSAGE, null, null, destination));
+            registry.findSubscriptions(broadcasts[i % broadcasts.length]);
+            registry.unregisterSubscription(message(SimpMessageType.UNSUBSCRIBE, "churn", "c-" + i, destination));
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static Message<?> message(SimpMessageType type, String sessionId,
+                                      String subscriptionId, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,123 @@
+package com.chatify.backend.Broker;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MultiValueMap;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoomIndexedSubscriptionRegistryTest {
+
+    private final RoomIndexedSubscriptionRegistry registry = new RoomIndexedSubscriptionRegistry();
+
+    @Test
+    void findsExactDestinationSubscribersOnly() {
+        subscribe("s1", "a", "/topic/room/1");
+        subscribe("s1", "b", "/topic/room/1/edit");
+        subscribe("s2", "a", "/topic/room/1");
+        subscribe("s3", "a", "/topic/room/2");
+
+        MultiValueMap<String, String> found = registry.findSubscriptions(broadcast("/topic/room/1"));
+
+        assertEquals(Map.of("s1", List.of("a"), "s2", List.of("a")), found);
+        assertEquals(Map.of("s1", List.of("b")), registry.findSubscriptions(broadcast("/topic/room/1/edit")));
+    }
+
+    @Test
+    void unsubscribeRemovesOnlyThatSubscription() {
+        subscribe("s1", "a", "/topic/room/1");
+        subscribe("s2", "a", "/topic/room/1");
+        registry.findSubscriptions(broadcast("/topic/room/1"));   // Prime the snapshot
+
+        registry.unregisterSubscription(unsubscribe("s1", "a"));
+
+        assertEquals(Map.of("s2", List.of("a")), registry.findSubscriptions(broadcast("/topic/room/1")));
+    }
+
+    @Test
+    void disconnectRemovesEverySubscriptionOfTheSession() {
+        subscribe("s1", "a", "/topic/room/1");
+        subscribe("s1", "b", "/topic/room/2");
+        subscribe("s1", "c", "/topic/room/*");
+        subscribe("s2", "a", "/topic/room/2");
+
+        registry.unregisterAllSubscriptions("s1");
+
+        assertTrue(registry.findSubscriptions(broadcast("/topic/room/1")).isEmpty());
+        assertEquals(Map.of("s2", List.of("a")), registry.findSubscriptions(broadcast("/topic/room/2")));
+    }
+
+    @Test
+    void patternSubscriptionsAreMatched() {
+        subscribe("s1", "a", "/topic/room/*");
+        subscribe("s2", "a", "/topic/room/7");
+
+        assertEquals(Map.of("s2", List.of("a"), "s1", List.of("a")),
+                registry.findSubscriptions(broadcast("/topic/room/7")));
+
+        registry.unregisterSubscription(unsubscribe("s1", "a"));
+        assertEquals(Map.of("s2", List.of("a")), registry.findSubscriptions(broadcast("/topic/room/7")));
+    }
+
+    @Test
+    void selectorsAreEvaluatedOnceConfigured() {
+        registry.setSelectorHeaderName("selector");
+        subscribe("s1", "a", "/topic/room/1", "headers.priority == 'high'");
+        subscribe("s2", "a", "/topic/room/1");
+
+        assertEquals(Map.of("s2", List.of("a")),
+                registry.findSubscriptions(broadcast("/topic/room/1", "low")));
+        assertEquals(Map.of("s2", List.of("a"), "s1", List.of("a")),
+                registry.findSubscriptions(broadcast("/topic/room/1", "high")));
+    }
+
+    @Test
+    void selectorsAreIgnoredWhileDisabled() {
+        subscribe("s1", "a", "/topic/room/1", "headers.priority == 'high'");
+
+        assertEquals(Map.of("s1", List.of("a")),
+                registry.findSubscriptions(broadcast("/topic/room/1", "low")));
+    }
+
+    private void subscribe(String sessionId, String subscriptionId, String destination) {
+        subscribe(sessionId, subscriptionId, destination, null);
+    }
+
+    private void subscribe(String sessionId, String subscriptionId, String destination, String selector) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        if (selector != null) {
+            accessor.setNativeHeader("selector", selector);
+        }
+        registry.registerSubscription(MessageBuilder.createMessage("", accessor.getMessageHeaders()));
+    }
+
+    private static Message<?> unsubscribe(String sessionId, String subscriptionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.UNSUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        return MessageBuilder.createMessage("", accessor.getMessageHeaders());
+    }
+
+    private static Message<?> broadcast(String destination) {
+        return broadcast(destination, null);
+    }
+
+    private static Message<?> broadcast(String destination, String priority) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        if (priority != null) {
+            accessor.setHeader("priority", priority);
+        }
+        return MessageBuilder.createMessage("", accessor.getMessageHeaders());
+    }
+}
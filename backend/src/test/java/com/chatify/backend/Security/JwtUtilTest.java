@@ -0,0 +1,85 @@
+package com.chatify.backend.Security;
+
+import com.chatify.backend.Entity.User;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtUtilTest {
+
+    private static final String SECRET = "3f8d2a1b9c7e4f6d0a5b8c3e2f1d4a7b9c6e3f0d2a5b8c1e4f7d0a3b6c9e2f5";
+
+    private final JwtUtil jwtUtil = new JwtUtil();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "cacheMaxEntries", 10);
+        ReflectionTestUtils.setField(jwtUtil, "cacheTtlMs", 300_000L);
+    }
+
+    @Test
+    void verifiedClaimsAreCachedAndReadOnly() {
+        String token = jwtUtil.generateToken(user(7));
+        Claims claims = jwtUtil.validateToken(token);
+
+        assertSame(claims, jwtUtil.validateToken(token));
+        assertEquals("user7@chatify.test", claims.getSubject());
+        assertEquals(7L, claims.get(JwtUtil.USER_ID_CLAIM, Long.class));
+        assertEquals(List.of("ROLE_USER"), claims.get(JwtUtil.ROLES_CLAIM, List.class));
+
+        assertThrows(UnsupportedOperationException.class, () -> claims.put("sub", "mallory@chatify.test"));
+        assertThrows(UnsupportedOperationException.class, () -> claims.setSubject("mallory@chatify.test"));
+        assertThrows(UnsupportedOperationException.class,
+                () -> claims.get(JwtUtil.ROLES_CLAIM, List.class).add("ROLE_ADMIN"));
+        claims.getExpiration().setTime(0);
+        assertTrue(claims.getExpiration().after(new Date()));
+    }
+
+    @Test
+    void invalidTokensAreRejected() {
+        assertNull(jwtUtil.validateToken("not-a-token"));
+        String token = jwtUtil.generateToken(user(7));
+        assertNull(jwtUtil.validateToken(token.substring(0, token.length() - 2) + "xx"));
+    }
+
+    @Test
+    void cacheStaysBounded() {
+        for (long id = 0; id < 50; id++) {
+            jwtUtil.validateToken(jwtUtil.generateToken(user(id)));
+        }
+        Map<?, ?> cache = (Map<?, ?>) ReflectionTestUtils.getField(jwtUtil, "cache");
+        assertTrue(cache.size() <= 10, "cache holds " + cache.size());
+    }
+
+    @Test
+    void expiredEntriesAreParsedAgain() {
+        ReflectionTestUtils.setField(jwtUtil, "cacheTtlMs", 0L);
+        String token = jwtUtil.generateToken(user(7));
+
+        Claims first = jwtUtil.validateToken(token);
+        Claims second = jwtUtil.validateToken(token);
+        assertEquals(first, second);
+        assertNotSame(first, second);
+    }
+
+    private static User user(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername("user" + id);
+        user.setEmail("user" + id + "@chatify.test");
+        return user;
+    }
+}
@@ -0,0 +1,50 @@
+package com.chatify.backend.Security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SendRateLimiterTest {
+
+    private final SendRateLimiter limiter = new SendRateLimiter();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(limiter, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(limiter, "enabled", true);
+        // Slow refill, so nothing comes back while the test runs
+        ReflectionTestUtils.setField(limiter, "userPerSecond", 0.01);
+        ReflectionTestUtils.setField(limiter, "userBurst", 3);
+        ReflectionTestUtils.setField(limiter, "roomPerSecond", 0.01);
+        ReflectionTestUtils.setField(limiter, "roomBurst", 2);
+        limiter.init();
+    }
+
+    @Test
+    void userBurstIsEnforced() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(SendRateLimiter.Verdict.ALLOWED, limiter.tryAcquire(1L, "room-" + i));
+        }
+        assertEquals(SendRateLimiter.Verdict.USER_LIMITED, limiter.tryAcquire(1L, "room-9"));
+    }
+
+    @Test
+    void roomRejectionDoesNotCostTheUserAToken() {
+        // Two other users drain the room
+        assertEquals(SendRateLimiter.Verdict.ALLOWED, limiter.tryAcquire(2L, "busy"));
+        assertEquals(SendRateLimiter.Verdict.ALLOWED, limiter.tryAcquire(3L, "busy"));
+
+        // Rejected by the room as often as the user's whole burst...
+        for (int i = 0; i < 5; i++) {
+            assertEquals(SendRateLimiter.Verdict.ROOM_LIMITED, limiter.tryAcquire(1L, "busy"));
+        }
+        // ...and the user can still send their full burst elsewhere
+        for (int i = 0; i < 3; i++) {
+            assertEquals(SendRateLimiter.Verdict.ALLOWED, limiter.tryAcquire(1L, "quiet-" + i));
+        }
+        assertEquals(SendRateLimiter.Verdict.USER_LIMITED, limiter.tryAcquire(1L, "quiet-9"));
+    }
+}
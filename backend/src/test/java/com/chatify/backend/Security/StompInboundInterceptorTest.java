@@ -0,0 +1,193 @@
+package com.chatify.backend.Security;
+
+import com.chatify.backend.Cluster.ClusterFanout;
+import com.chatify.backend.DTO.ErrorResponse;
+import com.chatify.backend.Entity.User;
+import com.chatify.backend.Repository.RoomMemberRepository;
+import com.chatify.backend.Repository.UserRepository;
+import com.chatify.backend.Service.PresenceService;
+import com.chatify.backend.Service.SessionIdentity;
+import com.chatify.backend.Service.SessionMembershipCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// CONNECT verifies the token once and resolves the session identity with a
+// single room-list query; later frames are authorized from that identity
+class StompInboundInterceptorTest {
+
+    private static final String SECRET = "3f8d2a1b9c7e4f6d0a5b8c3e2f1d4a7b9c6e3f0d2a5b8c1e4f7d0a3b6c9e2f5";
+
+    private final JwtUtil jwtUtil = new JwtUtil();
+    private final UserDetailsService userDetailsService = mock(UserDetailsService.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final RoomMemberRepository roomMemberRepository = mock(RoomMemberRepository.class);
+    private final TokenRevocationService revocationService = new TokenRevocationService();
+    private final SessionMembershipCache sessionMembershipCache = new SessionMembershipCache();
+    private final StompInboundInterceptor interceptor = new StompInboundInterceptor();
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "cacheMaxEntries", 100);
+        ReflectionTestUtils.setField(jwtUtil, "cacheTtlMs", 300_000L);
+        ReflectionTestUtils.setField(revocationService, "clusterFanout", mock(ClusterFanout.class));
+        ReflectionTestUtils.setField(sessionMembershipCache, "roomMemberRepository", roomMemberRepository);
+        when(roomMemberRepository.findRoomIdsByUserId(7L)).thenReturn(List.of(1L, 2L));
+
+        ReflectionTestUtils.setField(interceptor, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(interceptor, "userDetailsService", userDetailsService);
+        ReflectionTestUtils.setField(interceptor, "userRepository", userRepository);
+        ReflectionTestUtils.setField(interceptor, "revocationService", revocationService);
+        ReflectionTestUtils.setField(interceptor, "sessionMembershipCache", sessionMembershipCache);
+        ReflectionTestUtils.setField(interceptor, "presenceService", mock(PresenceService.class));
+        ReflectionTestUtils.setField(interceptor, "sendRateLimiter", mock(SendRateLimiter.class));
+        ReflectionTestUtils.setField(interceptor, "statelessPrincipal", true);
+        ReflectionTestUtils.setField(interceptor, "messagingTemplate", messagingTemplate);
+    }
+
+    @Test
+    void connectResolvesIdentityFromClaimsWithOneQuery() {
+        Map<String, Object> attributes = new HashMap<>();
+        interceptor.preSend(connect("s1", "Bearer " + jwtUtil.generateToken(user()), attributes), null);
+
+        SessionIdentity identity = assertInstanceOf(SessionIdentity.class,
+                attributes.get(StompInboundInterceptor.SESSION_IDENTITY));
+        assertEquals(7L, identity.getUserId());
+        assertEquals("alice", identity.getUsername());
+        assertInstanceOf(JwtUserPrincipal.class, identity.getPrincipal());
+        assertNotNull(sessionMembershipCache.get("s1"));
+
+        verify(roomMemberRepository, times(1)).findRoomIdsByUserId(7L);
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+        verify(userRepository, never()).findByEmail(anyString());
+    }
+
+    @Test
+    void connectWithoutStatelessPrincipalLoadsTheUser() {
+        ReflectionTestUtils.setField(interceptor, "statelessPrincipal", false);
+        when(userDetailsService.loadUserByUsername("alice@chatify.test")).thenReturn(
+                org.springframework.security.core.userdetails.User.withUsername("alice@chatify.test")
+                        .password("{noop}secret")
+                        .authorities("ROLE_USER")
+                        .build());
+        when(userRepository.findByEmail("alice@chatify.test")).thenReturn(Optional.of(user()));
+
+        interceptor.preSend(connect("s1", "Bearer " + jwtUtil.generateToken(user()), new HashMap<>()), null);
+
+        assertEquals(7L, sessionMembershipCache.get("s1").getUserId());
+        verify(userDetailsService, times(1)).loadUserByUsername("alice@chatify.test");
+    }
+
+    @Test
+    void connectRejectsMissingOrInvalidTokens() {
+        assertThrows(MessageDeliveryException.class,
+                () -> interceptor.preSend(connect("s1", null, new HashMap<>()), null));
+        assertThrows(MessageDeliveryException.class,
+                () -> interceptor.preSend(connect("s1", "Bearer not-a-token", new HashMap<>()), null));
+    }
+
+    @Test
+    void connectRejectsTokensOfDeactivatedUsers() {
+        String token = jwtUtil.generateToken(user());
+        revocationService.revoke(7L);
+
+        assertThrows(MessageDeliveryException.class,
+                () -> interceptor.preSend(connect("s1", "Bearer " + token, new HashMap<>()), null));
+    }
+
+    @Test
+    void subscribeIsAuthorizedFromTheSessionIdentity() {
+        Map<String, Object> attributes = new HashMap<>();
+        interceptor.preSend(connect("s1", "Bearer " + jwtUtil.generateToken(user()), attributes), null);
+
+        assertNotNull(interceptor.preSend(subscribe("s1", "/topic/room/2", attributes), null));
+        assertNotNull(interceptor.preSend(subscribe("s1", "/topic/user/7", attributes), null));
+        assertNull(interceptor.preSend(subscribe("s1", "/topic/room/3", attributes), null));
+        assertNull(interceptor.preSend(subscribe("s1", "/topic/user/8", attributes), null));
+
+        verify(roomMemberRepository, times(1)).findRoomIdsByUserId(7L);
+    }
+
+    @Test
+    void deniedFrameIsAnsweredOnTheErrorQueueInsteadOfClosingTheConnection() {
+        Map<String, Object> attributes = new HashMap<>();
+        interceptor.preSend(connect("s1", "Bearer " + jwtUtil.generateToken(user()), attributes), null);
+
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SEND);
+        accessor.setSessionId("s1");
+        accessor.setDestination("/app/chat/3");
+        accessor.setReceipt("r-1");
+        accessor.setSessionAttributes(attributes);
+
+        assertNull(interceptor.preSend(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), null));
+        ArgumentCaptor<ErrorResponse> error = ArgumentCaptor.forClass(ErrorResponse.class);
+        verify(messagingTemplate).convertAndSendToUser(eq("alice@chatify.test"), eq("/queue/errors"),
+                error.capture(), eq(Map.<String, Object>of("receipt-id", "r-1")));
+        assertEquals(403, error.getValue().getStatus());
+    }
+
+    @Test
+    void framesWithoutAnAuthenticatedSessionStillFail() {
+        assertThrows(MessageDeliveryException.class,
+                () -> interceptor.preSend(subscribe("unknown", "/topic/room/2", new HashMap<>()), null));
+    }
+
+    private static Message<byte[]> connect(String sessionId, String authorization, Map<String, Object> attributes) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        if (authorization != null) {
+            accessor.setNativeHeader("Authorization", authorization);
+        }
+        accessor.setSessionId(sessionId);
+        accessor.setSessionAttributes(attributes);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static Message<byte[]> subscribe(String sessionId, String destination, Map<String, Object> attributes) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId("sub-" + destination);
+        accessor.setDestination(destination);
+        accessor.setSessionAttributes(attributes);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId(7L);
+        user.setUsername("alice");
+        user.setEmail("alice@chatify.test");
+        user.setPasswordHash("{noop}secret");
+        user.setActive(true);
+        return user;
+    }
+}
@@ -0,0 +1,114 @@
+package com.chatify.backend.Service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactBitmapTest {
+
+    // [containers: int] + per container [key: char][kind: byte][cardinality: int]
+    private static final int HEADER_BYTES = 4;
+    private static final int CONTAINER_HEADER_BYTES = 2 + 1 + 4;
+
+    @Test
+    void addRemoveAndContains() {
+        CompactBitmap bitmap = new CompactBitmap();
+
+        assertTrue(bitmap.add(7));
+        assertFalse(bitmap.add(7));
+        assertTrue(bitmap.add(70_000));   // second container
+        assertTrue(bitmap.contains(7));
+        assertTrue(bitmap.contains(70_000));
+        assertFalse(bitmap.contains(8));
+        assertEquals(2, bitmap.cardinality());
+
+        assertTrue(bitmap.remove(7));
+        assertFalse(bitmap.remove(7));
+        assertFalse(bitmap.contains(7));
+        assertEquals(1, bitmap.cardinality());
+
+        assertTrue(bitmap.remove(70_000));
+        assertTrue(bitmap.isEmpty());
+    }
+
+    @Test
+    void visitsValuesInAscendingOrderAcrossContainers() {
+        CompactBitmap bitmap = new CompactBitmap();
+        for (int value : new int[]{200_000, 3, 65_536, 1, 65_535}) {
+            bitmap.add(value);
+        }
+
+        assertEquals(List.of(1, 3, 65_535, 65_536, 200_000), values(bitmap));
+    }
+
+    @Test
+    void containerSwitchesToBitsPastArrayLimitAndBackWhenItShrinks() {
+        CompactBitmap bitmap = new CompactBitmap();
+        for (int value = 0; value < 4096; value++) {
+            bitmap.add(value * 2);
+        }
+        assertEquals(HEADER_BYTES + CONTAINER_HEADER_BYTES + 4096 * 2, bitmap.toBytes().length);
+
+        bitmap.add(1);   // 4097 values: one 65536-bit container
+        assertEquals(HEADER_BYTES + CONTAINER_HEADER_BYTES + 8192, bitmap.toBytes().length);
+        assertEquals(4097, bitmap.cardinality());
+        assertTrue(bitmap.contains(1));
+        assertTrue(bitmap.contains(8190));
+
+        bitmap.remove(0);   // back to 4096: sorted array again
+        assertEquals(HEADER_BYTES + CONTAINER_HEADER_BYTES + 4096 * 2, bitmap.toBytes().length);
+        List<Integer> values = values(bitmap);
+        assertEquals(4096, values.size());
+        assertEquals(List.of(1, 2, 4), values.subList(0, 3));
+        assertEquals(8190, values.get(values.size() - 1));
+        assertFalse(bitmap.contains(0));
+
+        bitmap.add(0);   // and it still grows from there
+        assertEquals(0, values(bitmap).get(0));
+    }
+
+    @Test
+    void serialisedArrayAndBitmapContainersRoundTrip() {
+        CompactBitmap bitmap = new CompactBitmap();
+        for (int value = 0; value < 10_000; value++) {
+            bitmap.add(value);                  // dense: bitmap container
+        }
+        bitmap.add(65_536 * 3 + 17);            // sparse: array container
+        bitmap.add(65_536 * 3 + 5);
+
+        CompactBitmap copy = CompactBitmap.fromBytes(bitmap.toBytes());
+
+        assertEquals(bitmap.cardinality(), copy.cardinality());
+        assertEquals(values(bitmap), values(copy));
+        // The copy keeps working like the original
+        assertTrue(copy.remove(9_999));
+        assertTrue(copy.add(65_536 * 3 + 6));
+        assertEquals(List.of(65_536 * 3 + 5, 65_536 * 3 + 6, 65_536 * 3 + 17),
+                values(copy).subList(copy.cardinality() - 3, copy.cardinality()));
+    }
+
+    @Test
+    void emptyBitmapRoundTrips() {
+        CompactBitmap copy = CompactBitmap.fromBytes(new CompactBitmap().toBytes());
+
+        assertTrue(copy.isEmpty());
+        assertEquals(List.of(), values(copy));
+    }
+
+    @Test
+    void negativeValuesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new CompactBitmap().add(-1));
+    }
+
+    private static List<Integer> values(CompactBitmap bitmap) {
+        List<Integer> values = new ArrayList<>();
+        bitmap.forEach(values::add);
+        return values;
+    }
+}
@@ -0,0 +1,155 @@
+package com.chatify.backend.Service;
+
+import com.chatify.backend.Cluster.ClusterFanout;
+import com.chatify.backend.Entity.ArchivedMessageChange;
+import com.chatify.backend.Entity.Message;
+import com.chatify.backend.Enum.MessageType;
+import com.chatify.backend.Repository.ArchivedMessageChangeRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Edits and deletes of archived messages are kept beside the immutable
+// segments and applied by every read
+class MessageArchiveServiceTest {
+
+    private static final String ROOM = "42";
+    private static final OffsetDateTime START = OffsetDateTime.of(2024, 1, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+    private final ArchivedMessageChangeRepository changeRepository = mock(ArchivedMessageChangeRepository.class);
+    private final ClusterFanout clusterFanout = mock(ClusterFanout.class);
+    private final MessageArchiveService archive = new MessageArchiveService();
+
+    // What the change repository holds, by message id
+    private final Map<String, ArchivedMessageChange> stored = new HashMap<>();
+    private final List<Message> messages = new ArrayList<>();
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(changeRepository.findByRoomId(ROOM)).thenAnswer(call -> List.copyOf(stored.values()));
+        when(changeRepository.findById(anyString())).thenAnswer(call -> Optional.ofNullable(stored.get(call.<String>getArgument(0))));
+        when(changeRepository.save(any())).thenAnswer(call -> {
+            ArchivedMessageChange change = call.getArgument(0);
+            stored.put(change.getMessageId(), change);
+            return change;
+        });
+
+        ReflectionTestUtils.setField(archive, "changeRepository", changeRepository);
+        ReflectionTestUtils.setField(archive, "clusterFanout", clusterFanout);
+        ReflectionTestUtils.setField(archive, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(archive, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(archive, "dir", dir.toString());
+        ReflectionTestUtils.setField(archive, "relay", "loopback");
+        archive.init();
+
+        // Ten messages in blocks of four: [0-3] [4-7] [8-9]
+        for (int i = 0; i < 10; i++) {
+            messages.add(message(i));
+        }
+        Files.createDirectories(dir.resolve(ROOM));
+        MessageSegment.write(dir.resolve(ROOM).resolve("room.seg"), messages, 4, objectMapper);
+    }
+
+    @Test
+    void deletedMessagesAreLeftOutOfCountsAndPages() {
+        deleted(8);
+        deleted(5);
+
+        assertEquals(8, archive.count(ROOM));
+        assertEquals(List.of(9, 7, 6), numbers(archive.readBefore(ROOM, null, null, 3)));
+        assertEquals(List.of(7, 6, 4), numbers(archive.readBefore(ROOM,
+                messages.get(8).getTimestamp(), messages.get(8).getId(), 3)));
+        // Skips count visible messages only, whether or not a block holds a deleted one
+        assertEquals(List.of(7, 6), numbers(archive.read(ROOM, 1, 2)));
+        assertEquals(List.of(3, 2, 1), numbers(archive.read(ROOM, 4, 3)));
+        assertEquals(List.of(2, 1), numbers(archive.read(ROOM, 5, 2)));
+    }
+
+    @Test
+    void editAndDeleteAreRecordedAndSeenByLaterReads() {
+        String id = messages.get(6).getId();
+        Message found = archive.findById(ROOM, id).orElseThrow();
+
+        archive.edit(found, "edited text");
+
+        Message edited = archive.readBefore(ROOM, null, null, 4).get(3);
+        assertEquals(id, edited.getId());
+        assertEquals("edited text", edited.getContent());
+        assertTrue(edited.isEdited());
+
+        archive.delete(archive.findById(ROOM, id).orElseThrow());
+
+        assertTrue(archive.findById(ROOM, id).orElseThrow().isDeleted());
+        assertEquals("edited text", stored.get(id).getContent());
+        assertEquals(9, archive.count(ROOM));
+        assertEquals(List.of(9, 8, 7, 5), numbers(archive.read(ROOM, 0, 4)));
+        verify(clusterFanout, times(2)).publishEvent(eq("archive-changed"), any());
+    }
+
+    @Test
+    void changeFromAnotherNodeIsSeenOnceItIsRelayed() {
+        assertEquals(10, archive.count(ROOM));
+        deleted(9);
+        assertEquals(10, archive.count(ROOM));   // still the loaded changes
+
+        ReflectionTestUtils.invokeMethod(archive, "dropChanges", ROOM);
+
+        assertEquals(9, archive.count(ROOM));
+    }
+
+    private void deleted(int number) {
+        Message message = messages.get(number);
+        stored.put(message.getId(), new ArchivedMessageChange(message.getId(), ROOM, message.getTimestamp(),
+                null, null, true, START.plusDays(1)));
+    }
+
+    private static Message message(int number) {
+        OffsetDateTime timestamp = START.plusMinutes(number);
+        Message message = new Message();
+        message.setId(new ObjectId(Date.from(timestamp.toInstant())).toHexString());
+        message.setRoomId(ROOM);
+        message.setSenderId("7");
+        message.setSenderName("alice");
+        message.setSenderEmail("alice@chatify.test");
+        message.setContent("message " + number);
+        message.setType(MessageType.TEXT);
+        message.setTimestamp(timestamp);
+        return message;
+    }
+
+    private List<Integer> numbers(List<Message> read) {
+        List<String> ids = messages.stream().map(Message::getId).toList();
+        return read.stream().map(message -> ids.indexOf(message.getId())).toList();
+    }
+}
@@ -0,0 +1,154 @@
+package com.chatify.backend.Service;
+
+import com.chatify.backend.Entity.Message;
+import com.chatify.backend.Enum.MessageType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageSegmentTest {
+
+    private static final OffsetDateTime START = OffsetDateTime.of(2024, 1, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writtenMessagesReadBackInOrderWithTheirIndex() throws IOException {
+        List<Message> messages = messages(10);
+        messages.get(3).setEdited(true);
+        messages.get(3).setEditedAt(START.plusDays(1));
+
+        MessageSegment segment = MessageSegment.write(dir.resolve("room.seg"), messages, 4, objectMapper);
+
+        assertEquals(3, segment.blockCount());
+        assertEquals(10, segment.messageCount());
+        assertEquals(List.of(4, 4, 2), List.of(segment.blockSize(0), segment.blockSize(1), segment.blockSize(2)));
+        assertEquals(MessageSegment.millis(messages.get(4)), segment.blockFirstMillis(1));
+        assertEquals(MessageSegment.millis(messages.get(0)), segment.firstMillis());
+        assertEquals(messages.get(9).getTimestamp(), segment.lastTimestamp());
+        assertEquals("m09", segment.lastId());
+
+        List<Message> read = segment.readAll(objectMapper);
+        assertEquals(messages.stream().map(Message::getId).toList(), read.stream().map(Message::getId).toList());
+        Message edited = read.get(3);
+        assertEquals("message 3", edited.getContent());
+        assertEquals("user3", edited.getSenderName());
+        assertEquals(MessageType.TEXT, edited.getType());
+        assertTrue(edited.isEdited());
+        assertEquals(START.plusDays(1).toInstant(), edited.getEditedAt().toInstant());
+        assertNull(read.get(0).getEditedAt());
+    }
+
+    @Test
+    void reopenedSegmentMatchesTheWrittenOne() throws IOException {
+        Path file = dir.resolve("room.seg");
+        MessageSegment written = MessageSegment.write(file, messages(7), 3, objectMapper);
+
+        MessageSegment reopened = MessageSegment.open(file);
+
+        assertEquals(written.messageCount(), reopened.messageCount());
+        assertEquals(written.blockCount(), reopened.blockCount());
+        assertEquals(written.lastId(), reopened.lastId());
+        assertEquals(written.readBlock(2, objectMapper).get(0).getId(), reopened.readBlock(2, objectMapper).get(0).getId());
+        assertTrue(reopened.isCurrent(Files.readAttributes(file, BasicFileAttributes.class)));
+    }
+
+    @Test
+    void rewrittenFileIsNoLongerCurrentForTheOldInstance() throws IOException {
+        Path file = dir.resolve("room.seg");
+        MessageSegment first = MessageSegment.write(file, messages(5), 2, objectMapper);
+
+        MessageSegment.write(file, messages(3), 2, objectMapper);
+
+        assertFalse(first.isCurrent(Files.readAttributes(file, BasicFileAttributes.class)));
+        assertEquals(3, MessageSegment.open(file).messageCount());
+        try (var files = Files.list(dir)) {
+            assertEquals(List.of(file), files.toList());   // no temp file left behind
+        }
+    }
+
+    @Test
+    void fileWithoutTheTrailerIsRejected() throws IOException {
+        Path file = dir.resolve("room.seg");
+        MessageSegment.write(file, messages(5), 2, objectMapper);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+
+        assertThrows(IOException.class, () -> MessageSegment.open(file));
+    }
+
+    @Test
+    void indexPointingOutsideTheFileIsRejected() throws IOException {
+        Path file = dir.resolve("room.seg");
+        MessageSegment.write(file, messages(5), 2, objectMapper);
+        long size = Files.size(file);
+        // Trailer: index offset (8), block count (4), magic (4)
+        overwrite(file, size - 16, ByteBuffer.allocate(8).putLong(size * 2).flip());
+
+        assertThrows(IOException.class, () -> MessageSegment.open(file));
+    }
+
+    @Test
+    void corruptBlockFailsOnReadWithoutAffectingOthers() throws IOException {
+        Path file = dir.resolve("room.seg");
+        MessageSegment.write(file, messages(6), 3, objectMapper);
+        // Block 0 starts at offset 0; flip bytes inside its deflate stream
+        overwrite(file, 4, ByteBuffer.wrap(new byte[]{0x55, 0x55, 0x55, 0x55}));
+
+        MessageSegment segment = MessageSegment.open(file);
+
+        assertThrows(IOException.class, () -> segment.readBlock(0, objectMapper));
+        assertEquals("m03", segment.readBlock(1, objectMapper).get(0).getId());
+    }
+
+    @Test
+    void emptySegmentIsRefused() {
+        assertThrows(IllegalArgumentException.class,
+                () -> MessageSegment.write(dir.resolve("room.seg"), List.of(), 2, objectMapper));
+    }
+
+    private static List<Message> messages(int count) {
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Message message = new Message();
+            message.setId("m%02d".formatted(i));
+            message.setRoomId("42");
+            message.setSenderId(String.valueOf(i));
+            message.setSenderName("user" + i);
+            message.setContent("message " + i);
+            message.setType(MessageType.TEXT);
+            message.setTimestamp(START.plusMinutes(i));
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private static void overwrite(Path file, long position, ByteBuffer bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(bytes, position);
+        }
+    }
+}
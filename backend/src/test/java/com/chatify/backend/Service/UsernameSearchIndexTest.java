@@ -0,0 +1,94 @@
+package com.chatify.backend.Service;
+
+import com.chatify.backend.Cluster.ClusterFanout;
+import com.chatify.backend.DTO.UserResponse;
+import com.chatify.backend.Repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UsernameSearchIndexTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final UsernameSearchIndex index = new UsernameSearchIndex();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(index, "userRepository", userRepository);
+        ReflectionTestUtils.setField(index, "clusterFanout", mock(ClusterFanout.class));
+        when(userRepository.findActivePage(anyLong(), any(Pageable.class))).thenReturn(List.of());
+    }
+
+    @Test
+    void prefixMatchesRankBeforeSubstringMatches() {
+        index.add(1L, "Bobcat");
+        index.add(2L, "jimbob");
+        index.add(3L, "bob");
+        index.add(4L, "abobo");
+        index.add(5L, "alice");
+
+        assertEquals(List.of(3L, 1L, 4L, 2L), index.search("BOB", 10));
+        assertEquals(List.of(3L, 1L), index.search("bob", 2));
+    }
+
+    @Test
+    void shortQueriesMatchAnywhereInTheName() {
+        index.add(1L, "xa");
+        index.add(2L, "ab");
+        index.add(3L, "cab");
+        index.add(4L, "zz");
+
+        assertEquals(List.of(2L, 1L, 3L), index.search("a", 10));
+        assertEquals(List.of(2L, 3L), index.search("ab", 10));
+        assertEquals(List.of(), index.search("q", 10));
+    }
+
+    @Test
+    void removedAndRenamedUsersDropOut() {
+        index.add(1L, "carol");
+        index.add(2L, "caroline");
+        index.remove(2L);
+        index.add(1L, "dave");
+
+        assertEquals(List.of(), index.search("carol", 10));
+        assertEquals(List.of(1L), index.search("av", 10));
+    }
+
+    @Test
+    void loadDoesNotBringBackUsersRemovedWhileItRan() {
+        when(userRepository.findActivePage(eq(0L), any(Pageable.class))).thenReturn(List.of(
+                new UserResponse(1L, "erin", "erin@chatify.test", null, null),
+                new UserResponse(2L, "eric", "eric@chatify.test", null, null)));
+        index.remove(2L);   // Deactivated after the page was read, before it was indexed
+
+        ReflectionTestUtils.invokeMethod(index, "load");
+
+        assertTrue(index.isReady());
+        assertEquals(List.of(1L), index.search("er", 10));
+    }
+
+    @Test
+    void refreshPicksUpNewAndDeactivatedUsers() {
+        when(userRepository.findActivePage(eq(0L), any(Pageable.class))).thenReturn(List.of(
+                new UserResponse(1L, "frank", "frank@chatify.test", null, null)));
+        ReflectionTestUtils.invokeMethod(index, "load");
+
+        when(userRepository.findActivePage(eq(1L), any(Pageable.class))).thenReturn(List.of(
+                new UserResponse(2L, "franny", "franny@chatify.test", null, null)));
+        when(userRepository.findIdsByActiveFalse()).thenReturn(List.of(1L));
+        index.refresh();
+
+        assertEquals(List.of(2L), index.search("fran", 10));
+    }
+}